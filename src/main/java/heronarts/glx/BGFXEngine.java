@@ -21,12 +21,25 @@ package heronarts.glx;
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.bgfx.BGFX.*;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.lwjgl.bgfx.BGFXInit;
+import org.lwjgl.bgfx.BGFXStats;
+import org.lwjgl.bgfx.BGFXViewStats;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWNativeCocoa;
 import org.lwjgl.glfw.GLFWNativeWayland;
@@ -35,6 +48,8 @@ import org.lwjgl.glfw.GLFWNativeX11;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.Platform;
 
+import heronarts.lx.LXEngine;
+
 public class BGFXEngine {
 
   /**
@@ -58,15 +73,181 @@ public class BGFXEngine {
 
     public interface Vertex extends Buffer {
       public void setVertexBuffer(int stream);
+      public void setVertexBuffer(Encoder encoder, int stream);
     }
 
     public interface Index extends Buffer {
       public void setIndexBuffer();
+      public void setIndexBuffer(Encoder encoder);
+    }
+  }
+
+  /**
+   * Immutable snapshot of the renderer statistics reported by bgfx_get_stats()
+   * after a frame. Times are in milliseconds and memory sizes are in bytes. Note
+   * that GPU timings lag behind the CPU by up to maxGpuLatency frames.
+   */
+  public static class Stats {
+
+    /**
+     * Timing of a single view in the frame
+     */
+    public static class View {
+      public final short viewId;
+      public final String name;
+      public final double cpuTimeMs;
+      public final double gpuTimeMs;
+
+      private View(BGFXViewStats stats, double cpuTimerFreq, double gpuTimerFreq) {
+        this.viewId = stats.view();
+        this.name = stats.nameString();
+        this.cpuTimeMs = ticksToMs(stats.cpuTimeEnd() - stats.cpuTimeBegin(), cpuTimerFreq);
+        this.gpuTimeMs = ticksToMs(stats.gpuTimeEnd() - stats.gpuTimeBegin(), gpuTimerFreq);
+      }
+
+      @Override
+      public String toString() {
+        return String.format("[%d] %s: cpu=%.3fms gpu=%.3fms", this.viewId, this.name, this.cpuTimeMs, this.gpuTimeMs);
+      }
+    }
+
+    /**
+     * Frame number this snapshot was taken after
+     */
+    public final int frame;
+
+    public final double cpuTimeFrameMs;
+    public final double cpuTimeSubmitMs;
+    public final double gpuTimeMs;
+    public final double waitRenderMs;
+    public final double waitSubmitMs;
+    public final int maxGpuLatency;
+
+    public final int numDraw;
+    public final int numCompute;
+    public final int numBlit;
+    public final int numViews;
+
+    public final int numPrograms;
+    public final int numTextures;
+    public final int numFrameBuffers;
+    public final int numVertexBuffers;
+    public final int numDynamicVertexBuffers;
+    public final int numIndexBuffers;
+    public final int numDynamicIndexBuffers;
+
+    public final long textureMemoryUsed;
+    public final long rtMemoryUsed;
+    public final long gpuMemoryUsed;
+    public final long gpuMemoryMax;
+    public final int transientVbUsed;
+    public final int transientIbUsed;
+
+    /**
+     * Per-view timings, only populated when the bgfx profiler is enabled
+     */
+    public final View[] views;
+
+    private Stats(int frame, BGFXStats stats) {
+      final double cpuTimerFreq = stats.cpuTimerFreq();
+      final double gpuTimerFreq = stats.gpuTimerFreq();
+      this.frame = frame;
+      this.cpuTimeFrameMs = ticksToMs(stats.cpuTimeFrame(), cpuTimerFreq);
+      this.cpuTimeSubmitMs = ticksToMs(stats.cpuTimeEnd() - stats.cpuTimeBegin(), cpuTimerFreq);
+      this.gpuTimeMs = ticksToMs(stats.gpuTimeEnd() - stats.gpuTimeBegin(), gpuTimerFreq);
+      this.waitRenderMs = ticksToMs(stats.waitRender(), cpuTimerFreq);
+      this.waitSubmitMs = ticksToMs(stats.waitSubmit(), cpuTimerFreq);
+      this.maxGpuLatency = stats.maxGpuLatency();
+      this.numDraw = stats.numDraw();
+      this.numCompute = stats.numCompute();
+      this.numBlit = stats.numBlit();
+      this.numViews = Short.toUnsignedInt(stats.numViews());
+      this.numPrograms = Short.toUnsignedInt(stats.numPrograms());
+      this.numTextures = Short.toUnsignedInt(stats.numTextures());
+      this.numFrameBuffers = Short.toUnsignedInt(stats.numFrameBuffers());
+      this.numVertexBuffers = Short.toUnsignedInt(stats.numVertexBuffers());
+      this.numDynamicVertexBuffers = Short.toUnsignedInt(stats.numDynamicVertexBuffers());
+      this.numIndexBuffers = Short.toUnsignedInt(stats.numIndexBuffers());
+      this.numDynamicIndexBuffers = Short.toUnsignedInt(stats.numDynamicIndexBuffers());
+      this.textureMemoryUsed = stats.textureMemoryUsed();
+      this.rtMemoryUsed = stats.rtMemoryUsed();
+      this.gpuMemoryUsed = stats.gpuMemoryUsed();
+      this.gpuMemoryMax = stats.gpuMemoryMax();
+      this.transientVbUsed = stats.transientVbUsed();
+      this.transientIbUsed = stats.transientIbUsed();
+
+      final BGFXViewStats.Buffer viewStats = stats.viewStats();
+      if (viewStats == null) {
+        this.views = new View[0];
+      } else {
+        this.views = new View[this.numViews];
+        for (int i = 0; i < this.views.length; ++i) {
+          this.views[i] = new View(viewStats.get(i), cpuTimerFreq, gpuTimerFreq);
+        }
+      }
+    }
+
+    private static double ticksToMs(long ticks, double timerFreq) {
+      return (timerFreq > 0) ? (ticks * 1000. / timerFreq) : 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+        "BGFX frame %d: cpu=%.3fms gpu=%.3fms waitRender=%.3fms waitSubmit=%.3fms draws=%d views=%d textureMem=%dKB rtMem=%dKB transientVb=%dB transientIb=%dB",
+        this.frame,
+        this.cpuTimeFrameMs,
+        this.gpuTimeMs,
+        this.waitRenderMs,
+        this.waitSubmitMs,
+        this.numDraw,
+        this.numViews,
+        this.textureMemoryUsed / 1024,
+        this.rtMemoryUsed / 1024,
+        this.transientVbUsed,
+        this.transientIbUsed
+      );
     }
   }
 
   private final GLX glx;
 
+  /**
+   * Per-phase timing of frames on the BGFX thread
+   */
+  public final FrameProfiler profiler = new FrameProfiler();
+
+  /**
+   * Most recent renderer statistics, null unless stats are enabled
+   */
+  private volatile Stats stats = null;
+
+  private volatile boolean statsEnabled = false;
+  private boolean statsProfilerOn = false;
+
+  /**
+   * Accounting of live resources and their memory usage
+   */
+  public final ResourceRegistry resources = new ResourceRegistry(this);
+
+  /**
+   * Pooled native memory backing vertex and index buffers
+   */
+  public final NativeMemoryPool memory;
+
+  // Interned vertex declarations, BGFX thread only
+  final Map<List<VertexDeclaration.Attribute>, VertexDeclaration> vertexDeclarations = new HashMap<>();
+
+  /**
+   * Asynchronous capture of rendered frames, requires GLX.Flags.frameCapture
+   */
+  public final FrameCapture capture = new FrameCapture();
+
+  /**
+   * Main encoder for the BGFX thread, equivalent to the global bgfx API
+   */
+  public final Encoder encoder;
+
   final Thread thread;
 
   final AtomicBoolean resizeFramebuffer = new AtomicBoolean(false);
@@ -81,14 +262,16 @@ public class BGFXEngine {
 
   BGFXEngine(GLX glx) {
     this.glx = glx;
+    this.memory = new NativeMemoryPool(glx.flags.memoryPoolMaxFreeBytes);
 
     // Note the purpose of this thread
     this.thread = Thread.currentThread();
     this.thread.setName("BGFX Render Thread");
 
     try (MemoryStack stack = MemoryStack.stackPush()) {
-      final int renderer = this.glx.flags.useOpenGL ?
-        org.lwjgl.bgfx.BGFX.BGFX_RENDERER_TYPE_OPENGL :
+      final int renderer =
+        this.glx.flags.headless ? org.lwjgl.bgfx.BGFX.BGFX_RENDERER_TYPE_NOOP :
+        this.glx.flags.useOpenGL ? org.lwjgl.bgfx.BGFX.BGFX_RENDERER_TYPE_OPENGL :
         org.lwjgl.bgfx.BGFX.BGFX_RENDERER_TYPE_COUNT;
 
       final BGFXInit init = BGFXInit.malloc(stack);
@@ -101,21 +284,28 @@ public class BGFXEngine {
           .width(this.glx.window.getFrameBufferWidth())
           .height(this.glx.window.getFrameBufferHeight())
           .reset(BGFX_RESET_VSYNC));
-      switch (Platform.get()) {
-        case LINUX, FREEBSD -> {
-          if (glfwGetPlatform() == GLFW.GLFW_PLATFORM_WAYLAND) {
-            init.platformData()
-              .ndt(GLFWNativeWayland.glfwGetWaylandDisplay())
-              .nwh(GLFWNativeWayland.glfwGetWaylandWindow(this.glx.window.handle))
-              .type(BGFX_NATIVE_WINDOW_HANDLE_TYPE_WAYLAND);
-          } else {
-            init.platformData()
-              .ndt(GLFWNativeX11.glfwGetX11Display())
-              .nwh(GLFWNativeX11.glfwGetX11Window(this.glx.window.handle));
+      if (this.glx.flags.frameCapture) {
+        init.callback(this.capture.createCallbacks());
+      }
+
+      // NOTE: no native window in headless mode, the Noop renderer doesn't need one
+      if (!this.glx.flags.headless) {
+        switch (Platform.get()) {
+          case LINUX, FREEBSD -> {
+            if (glfwGetPlatform() == GLFW.GLFW_PLATFORM_WAYLAND) {
+              init.platformData()
+                .ndt(GLFWNativeWayland.glfwGetWaylandDisplay())
+                .nwh(GLFWNativeWayland.glfwGetWaylandWindow(this.glx.window.handle))
+                .type(BGFX_NATIVE_WINDOW_HANDLE_TYPE_WAYLAND);
+            } else {
+              init.platformData()
+                .ndt(GLFWNativeX11.glfwGetX11Display())
+                .nwh(GLFWNativeX11.glfwGetX11Window(this.glx.window.handle));
+            }
           }
+          case MACOSX -> init.platformData().nwh(GLFWNativeCocoa.glfwGetCocoaWindow(this.glx.window.handle));
+          case WINDOWS -> init.platformData().nwh(GLFWNativeWin32.glfwGetWin32Window(this.glx.window.handle));
         }
-        case MACOSX -> init.platformData().nwh(GLFWNativeCocoa.glfwGetCocoaWindow(this.glx.window.handle));
-        case WINDOWS -> init.platformData().nwh(GLFWNativeWin32.glfwGetWin32Window(this.glx.window.handle));
       }
       if (!bgfx_init(init)) {
         throw new RuntimeException("Error initializing bgfx renderer");
@@ -131,6 +321,21 @@ public class BGFXEngine {
     GLX.log("BGFX renderer: " + rendererName);
 
     this.zZeroToOne = !bgfx_get_caps().homogeneousDepth();
+    this.statsEnabled = this.glx.flags.bgfxStats;
+
+    // NOTE: on the API thread this is always bgfx's persistent main encoder
+    this.encoder = new Encoder(bgfx_encoder_begin(false), false);
+
+    this.encoderThreads = Math.max(0, Math.min(MAX_ENCODER_THREADS, this.glx.flags.encoderThreads));
+    if (this.encoderThreads > 0) {
+      this.encoderPool = Executors.newFixedThreadPool(this.encoderThreads, runnable -> {
+        final Thread thread = new Thread(runnable, "GLX Encoder");
+        thread.setDaemon(true);
+        return thread;
+      });
+    } else {
+      this.encoderPool = null;
+    }
   }
 
   public int getRenderer() {
@@ -141,6 +346,162 @@ public class BGFXEngine {
     return this.renderer == BGFX_RENDERER_TYPE_OPENGL;
   }
 
+  public boolean isNoop() {
+    return this.renderer == BGFX_RENDERER_TYPE_NOOP;
+  }
+
+  /**
+   * Whether the renderer supports all of the given capabilities
+   *
+   * @param caps BGFX_CAPS_* flags
+   * @return <code>true</code> if all capabilities are supported
+   */
+  public boolean isSupported(long caps) {
+    return (bgfx_get_caps().supported() & caps) == caps;
+  }
+
+  /**
+   * Begins an encoder for recording draw calls on a thread other than the BGFX
+   * thread. The encoder must be ended within the current frame, before the BGFX
+   * thread calls bgfx_frame(). The number of simultaneous encoders is limited.
+   *
+   * @return Encoder for the calling thread
+   */
+  public Encoder beginEncoder() {
+    return new Encoder(bgfx_encoder_begin(true), true);
+  }
+
+  /**
+   * Maximum number of thread encoders, bgfx is built with a limit of 8 encoders
+   * including the main encoder
+   */
+  public static final int MAX_ENCODER_THREADS = 7;
+
+  /**
+   * A task which records draw calls with the given encoder
+   */
+  @FunctionalInterface
+  public interface RecordTask {
+    /**
+     * Records draw calls
+     *
+     * @param encoder Encoder for the thread running this task
+     * @param index Index of this task, task 0 always runs on the BGFX thread
+     */
+    public void record(Encoder encoder, int index);
+  }
+
+  // Worker threads for parallel recording, null if GLX.Flags.encoderThreads is 0
+  private final ExecutorService encoderPool;
+  private final int encoderThreads;
+
+  /**
+   * Gets the maximum number of tasks which may be passed to recordParallel(), which
+   * is the number of encoder worker threads plus the BGFX thread
+   *
+   * @return Maximum number of parallel record tasks
+   */
+  public int getMaxRecordTasks() {
+    return 1 + this.encoderThreads;
+  }
+
+  /**
+   * Runs tasks which record draw calls in parallel and waits for all of them to
+   * finish. Task 0 runs on the BGFX thread with the main encoder, every other task
+   * runs on a worker thread with a thread encoder that is ended before this method
+   * returns. Draw calls from different tasks are not submitted in a fixed order.
+   * Must be called on the BGFX thread.
+   *
+   * @param numTasks Number of tasks, no more than getMaxRecordTasks()
+   * @param task Task to run, once for each index
+   */
+  public void recordParallel(int numTasks, RecordTask task) {
+    this.glx.assertBgfxThread("BGFXEngine.recordParallel() must be called on the BGFX thread");
+    if (numTasks > getMaxRecordTasks()) {
+      throw new IllegalArgumentException("Cannot record more than " + getMaxRecordTasks() + " tasks in parallel: " + numTasks);
+    }
+    final List<Future<?>> futures = new ArrayList<>(numTasks - 1);
+    Throwable failure = null;
+    try {
+      for (int i = 1; i < numTasks; ++i) {
+        final int index = i;
+        futures.add(this.encoderPool.submit(() -> {
+          try (Encoder encoder = beginEncoder()) {
+            task.record(encoder, index);
+          }
+        }));
+      }
+      task.record(this.encoder, 0);
+    } finally {
+      // Thread encoders must all be ended before the frame is submitted
+      boolean interrupted = false;
+      for (Future<?> future : futures) {
+        while (true) {
+          try {
+            future.get();
+            break;
+          } catch (InterruptedException ix) {
+            interrupted = true;
+          } catch (ExecutionException eex) {
+            if (failure == null) {
+              failure = eex.getCause();
+            }
+            break;
+          }
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (failure != null) {
+      throw new RuntimeException("Parallel record task failed", failure);
+    }
+  }
+
+  /**
+   * Enables or disables collection of renderer statistics after every frame. When
+   * enabled, the bgfx profiler is also turned on to collect per-view timings. May
+   * be called from any thread, takes effect on the next frame.
+   *
+   * @param statsEnabled Whether to collect stats
+   * @return this
+   */
+  public BGFXEngine setStatsEnabled(boolean statsEnabled) {
+    this.statsEnabled = statsEnabled;
+    if (!statsEnabled) {
+      this.stats = null;
+    }
+    return this;
+  }
+
+  public boolean isStatsEnabled() {
+    return this.statsEnabled;
+  }
+
+  /**
+   * Gets the renderer statistics from the most recently completed frame. May
+   * be called from any thread.
+   *
+   * @return Stats snapshot, or <code>null</code> if stats are not enabled
+   */
+  public Stats getStats() {
+    return this.statsEnabled ? this.stats : null;
+  }
+
+  /**
+   * Names a view for identification in per-view stats, a no-op when stats are
+   * not enabled. Must be called on the BGFX thread.
+   *
+   * @param viewId View ID
+   * @param name Name of the view
+   */
+  public void setViewName(short viewId, String name) {
+    if (this.statsProfilerOn) {
+      bgfx_set_view_name(viewId, name);
+    }
+  }
+
   void mainLoop() {
 
     final int FRAME_PERF_LOG = 300;
@@ -163,7 +524,16 @@ public class BGFXEngine {
       }
 
       // Dispose of queued graphics resources
+      final long disposeStart = System.nanoTime();
       _disposeQueue();
+      this.profiler.record(FrameProfiler.Phase.DISPOSE, disposeStart);
+
+      // Run tasks submitted from other threads
+      if (!this.taskQueue.isEmpty()) {
+        final long tasksStart = System.nanoTime();
+        _runTasks();
+        this.profiler.record(FrameProfiler.Phase.TASKS, tasksStart);
+      }
 
       // Window size changed, reset backing framebuffer
       if (this.resizeFramebuffer.getAndSet(false)) {
@@ -183,6 +553,14 @@ public class BGFXEngine {
         this.glx.ui.redraw();
       }
 
+      // Skip this frame entirely if rendering on demand and nothing has changed
+      if (this.glx.flags.renderOnDemand && !needsFrame()) {
+        try {
+          Thread.sleep(RENDER_ON_DEMAND_POLL_MS);
+        } catch (InterruptedException ix) {}
+        continue;
+      }
+
       long drawStart = System.nanoTime();
       try {
         draw();
@@ -207,36 +585,341 @@ public class BGFXEngine {
         now = System.currentTimeMillis();
         if (this.glx.flagUIDebug) {
           GLX.log("UI thread healthy, running at: " + FRAME_PERF_LOG * 1000f / (now - before) + "fps, average draw time: " + (drawNanos / FRAME_PERF_LOG / 1000) + "us");
+          this.profiler.log();
+          this.resources.log();
+          this.memory.log();
+          final Stats stats = getStats();
+          if (stats != null) {
+            GLX.log(stats.toString());
+            for (Stats.View view : stats.views) {
+              GLX.log(view.toString());
+            }
+          }
         }
         before = now;
         drawNanos = 0;
       }
     }
+
+    _cancelTasks();
+    flushFrames();
   }
 
-  final List<BGFXEngine.Resource> threadSafeDisposeQueue = Collections.synchronizedList(new ArrayList<>());
-  private final List<BGFXEngine.Resource> bgfxThreadDisposeQueue = new ArrayList<>();
+  /**
+   * A unit of work submitted to run on the BGFX thread
+   */
+  private static class Task<T> {
+    private final Callable<T> callable;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    private Task(Callable<T> callable) {
+      this.callable = callable;
+    }
+
+    private void run() {
+      if (this.future.isDone()) {
+        // Cancelled by the caller before we got to it
+        return;
+      }
+      try {
+        this.future.complete(this.callable.call());
+      } catch (Throwable x) {
+        this.future.completeExceptionally(x);
+      }
+    }
+  }
+
+  // Lock-free, may be appended to from any thread, only drained by the BGFX thread
+  private final Queue<Task<?>> taskQueue = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Submits a task to be run on the BGFX thread, such as the creation of bgfx
+   * resources using data that has already been prepared on another thread. Tasks
+   * are run in order at the start of each iteration of the main loop, within the
+   * time budget of GLX.Flags.taskBudgetMs. At least one task is always run per
+   * iteration. May be called from any thread. Note that dependent actions on the
+   * future without an explicit executor will also run on the BGFX thread.
+   *
+   * @param <T> Type of task result
+   * @param task Task to run on the BGFX thread
+   * @return Future that is completed with the task result
+   */
+  public <T> CompletableFuture<T> submit(Callable<T> task) {
+    Objects.requireNonNull(task, "May not submit null task to BGFXEngine");
+    final Task<T> submitted = new Task<T>(task);
+    if (this.shutdown) {
+      submitted.future.cancel(false);
+    } else {
+      this.taskQueue.add(submitted);
+    }
+    return submitted.future;
+  }
+
+  /**
+   * Submits a task with no result to be run on the BGFX thread
+   *
+   * @param task Task to run on the BGFX thread
+   * @return Future that is completed once the task has run
+   */
+  public CompletableFuture<Void> submit(Runnable task) {
+    Objects.requireNonNull(task, "May not submit null task to BGFXEngine");
+    return submit(() -> {
+      task.run();
+      return null;
+    });
+  }
+
+  private void _runTasks() {
+    final long budgetNanos = (long) (this.glx.flags.taskBudgetMs * 1_000_000);
+    final long start = System.nanoTime();
+    Task<?> task;
+    while ((task = this.taskQueue.poll()) != null) {
+      task.run();
+      if (System.nanoTime() - start > budgetNanos) {
+        break;
+      }
+    }
+  }
+
+  private void _cancelTasks() {
+    Task<?> task;
+    while ((task = this.taskQueue.poll()) != null) {
+      task.future.cancel(false);
+    }
+  }
+
+  /**
+   * A resource that has been disposed, tagged with the frame it was retired in
+   */
+  private static class Retired {
+    private final Resource resource;
+    private final int frame;
+
+    private Retired(Resource resource, int frame) {
+      this.resource = resource;
+      this.frame = frame;
+    }
+  }
+
+  // Lock-free, may be appended to from any thread, only drained by the BGFX thread
+  private final Queue<Retired> disposeQueue = new ConcurrentLinkedQueue<>();
+
+  // The resource currently being disposed by the queue, BGFX thread only
+  private Resource disposing = null;
+
+  // Set once no more frames will be rendered, BGFX thread only
+  private boolean disposeImmediate = false;
+
+  // Most recent frame number returned by bgfx_frame()
+  private volatile int frameNumber = 0;
 
   private void draw() {
-    // Copy the latest engine-rendered LED frame
-    this.glx.engine.copyFrameThreadSafe(this.glx.uiFrame);
+    final long frameStart = System.nanoTime();
+
+    // Toggle the bgfx profiler if stats were enabled or disabled
+    final boolean statsEnabled = this.statsEnabled;
+    if (statsEnabled != this.statsProfilerOn) {
+      this.statsProfilerOn = statsEnabled;
+      bgfx_set_debug(statsEnabled ? BGFX_DEBUG_PROFILER : BGFX_DEBUG_NONE);
+    }
+
+    // Take the latest engine-rendered LED frame, already done by
+    // needsFrame() when rendering on demand
+    if (!this.glx.flags.renderOnDemand) {
+      takeFrame();
+    }
     this.glx.ui.draw();
-    bgfx_frame(false);
+
+    this.capture.beforeFrame(this.frameNumber + 1);
+
+    final long bgfxFrameStart = System.nanoTime();
+    final int frame = this.frameNumber = bgfx_frame(false);
+    if (statsEnabled) {
+      this.stats = new Stats(frame, bgfx_get_stats());
+    }
+    this.profiler.record(FrameProfiler.Phase.FRAME, frameStart);
+    this.profiler.record(FrameProfiler.Phase.BGFX_FRAME, bgfxFrameStart);
+    this.lastFrameMillis = System.currentTimeMillis();
+  }
+
+  /**
+   * Gets the number of the most recently submitted frame. Draw calls made on the
+   * BGFX thread belong to the frame following this one.
+   *
+   * @return Frame number returned by the last call to bgfx_frame()
+   */
+  public int getFrameNumber() {
+    return this.frameNumber;
+  }
+
+  // LED frames handed from the engine thread, created by initUIFrame()
+  private FrameExchange frames = null;
+
+  // Incremented whenever a changed LED frame is taken by the UI
+  private long uiFrameVersion = 0;
+
+  /**
+   * Creates the buffers used to hand LED frames from the engine thread to the UI.
+   * Each engine loop publishes the engine's most recently completed frame, which
+   * is the one it finished at the end of the previous loop, as LX offers no hook
+   * after a frame is published. While the engine is stopped, or paused such that
+   * its loop tasks do not run, nothing is published and the UI holds the last
+   * frame it received.
+   *
+   * @return Initial UI frame
+   */
+  LXEngine.Frame initUIFrame() {
+    this.frames = new FrameExchange(this.glx, this.glx.flags.renderOnDemand);
+    this.glx.engine.addLoopTask(deltaMs -> this.frames.publish());
+    return this.frames.getFrontFrame();
+  }
+
+  /**
+   * Gets the version of the LED frame currently held in GLX.uiFrame. This only
+   * changes when a new frame has been produced by the engine and taken by the UI,
+   * so UI components may compare against a previous value to determine whether
+   * the colors could have changed. Must be called on the BGFX thread.
+   *
+   * @return Version of the UI frame
+   */
+  public long getUIFrameVersion() {
+    return this.uiFrameVersion;
+  }
+
+  /**
+   * Swaps the most recent engine frame into GLX.uiFrame, if a new one has been
+   * published since the last call. No colors are copied on the BGFX thread.
+   *
+   * @return <code>true</code> if a changed frame was taken
+   */
+  private boolean takeFrame() {
+    final long takeStart = System.nanoTime();
+    final int taken = this.frames.take();
+    if (taken < 0) {
+      return false;
+    }
+    this.glx.uiFrame = this.frames.getFrontFrame();
+    final boolean changed = (taken > 0);
+    if (changed) {
+      ++this.uiFrameVersion;
+    }
+    this.profiler.record(FrameProfiler.Phase.COPY_FRAME, takeStart);
+    return changed;
+  }
+
+  // How long to sleep when skipping a frame in render-on-demand mode
+  private static final long RENDER_ON_DEMAND_POLL_MS = 10;
+
+  // Render-on-demand still draws a frame at least this often, so that
+  // 3d content which changes without notifying the UI doesn't go stale
+  private static final long RENDER_ON_DEMAND_MAX_IDLE_MS = 1000;
+
+  private long lastFrameMillis = 0;
+
+  /**
+   * Determines whether a frame needs to be drawn in render-on-demand mode. Runs
+   * the UI loop tasks and copies the latest LED frame as a side effect.
+   *
+   * @return <code>true</code> if the UI, cameras, or LED colors have changed, or
+   *   retired resources are waiting on frames to pass before they can be freed
+   */
+  private boolean needsFrame() {
+    this.glx.ui.loop();
+
+    // NOTE: non-short-circuit OR here, the LED frame must always be taken
+    return
+      takeFrame() |
+      this.glx.ui.needsFrame() ||
+      !this.disposeQueue.isEmpty() ||
+      (System.currentTimeMillis() - this.lastFrameMillis) > RENDER_ON_DEMAND_MAX_IDLE_MS;
+  }
+
+  /**
+   * Retires a resource for disposal. Unless no more frames are going to be rendered,
+   * the resource is queued and its dispose() method is invoked again on the BGFX thread
+   * once the frame latency has passed, so that bgfx is no longer referencing its memory
+   * from frames that are still in flight.
+   *
+   * @param resource Resource being disposed
+   * @return true if the dispose code should run now
+   */
+  boolean retire(Resource resource) {
+    if (Thread.currentThread() == this.thread) {
+      if ((resource == this.disposing) || this.disposeImmediate) {
+        return true;
+      }
+    } else {
+      GLX.debug(resource.getClass().getName() + ".dispose() queued to run on BGFX thread");
+    }
+    this.disposeQueue.add(new Retired(resource, this.frameNumber));
+    return false;
+  }
+
+  /**
+   * Frees a block of native memory once no frames that could still reference it
+   * through bgfx_make_ref() are in flight.
+   *
+   * @param memory Native memory allocated from the memory pool
+   */
+  void memFreeDeferred(ByteBuffer memory) {
+    new Resource() {
+      @Override
+      public void dispose() {
+        if (retire(this)) {
+          BGFXEngine.this.memory.free(memory);
+        }
+      }
+    }.dispose();
   }
 
   private void _disposeQueue() {
-    synchronized (this.threadSafeDisposeQueue) {
-      this.bgfxThreadDisposeQueue.addAll(this.threadSafeDisposeQueue);
-      this.threadSafeDisposeQueue.clear();
+    final int frameNumber = this.frameNumber;
+    final int frameLatency = this.glx.flags.disposeFrameLatency;
+    Retired retired;
+    while ((retired = this.disposeQueue.peek()) != null) {
+      // NOTE: resources retired from other threads may be very slightly out of
+      // frame order, which only ever delays disposal of the ones behind them
+      if (!this.disposeImmediate && (frameNumber - retired.frame < frameLatency)) {
+        break;
+      }
+      this.disposeQueue.poll();
+      this.disposing = retired.resource;
+      try {
+        retired.resource.dispose();
+      } catch (Exception x) {
+        GLX.error(x, "Error disposing " + retired.resource.getClass().getName() + ": " + x.getMessage());
+      } finally {
+        this.disposing = null;
+      }
+    }
+  }
+
+  /**
+   * Pushes through frames that may still be in flight once the main loop has
+   * finished, after which all resources are disposed immediately
+   */
+  private void flushFrames() {
+    for (int i = 0; i < this.glx.flags.disposeFrameLatency; ++i) {
+      this.frameNumber = bgfx_frame(false);
     }
-    this.bgfxThreadDisposeQueue.forEach(r -> r.dispose());
-    this.bgfxThreadDisposeQueue.clear();
+    this.disposeImmediate = true;
+    _disposeQueue();
   }
 
   void dispose() {
     GLX.log("Disposing BGFXEngine...");
+    _cancelTasks();
     _disposeQueue();
+    for (VertexDeclaration vertexDeclaration : this.vertexDeclarations.values()) {
+      vertexDeclaration.disposeShared();
+    }
+    this.vertexDeclarations.clear();
+    if (this.encoderPool != null) {
+      this.encoderPool.shutdownNow();
+    }
     bgfx_shutdown();
+    this.capture.dispose();
+    this.memory.dispose();
   }
 
 }
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+
+package heronarts.glx;
+
+/**
+ * Tracks a small, bounded set of sorted, non-overlapping element spans that have
+ * been modified since a dynamic buffer was last uploaded. Overlapping and adjacent
+ * spans are coalesced. When there are more than MAX_RANGES spans, the two spans
+ * separated by the smallest gap are merged, uploading a few clean elements in
+ * exchange for fewer update calls.
+ */
+class DirtyRanges {
+
+  static final int MAX_RANGES = 8;
+
+  // Start (inclusive) and end (exclusive) of each span, one slot spare for insertion
+  private final int[] start = new int[MAX_RANGES + 1];
+  private final int[] end = new int[MAX_RANGES + 1];
+  private int size = 0;
+
+  /**
+   * Marks a span of elements as dirty, clamped to the given limit
+   *
+   * @param start First element index
+   * @param count Number of elements
+   * @param limit Total number of elements in the buffer
+   */
+  void add(int start, int count, int limit) {
+    final int s = Math.max(0, start);
+    final int e = Math.min(limit, start + count);
+    if (e <= s) {
+      return;
+    }
+
+    // Insert in sorted order
+    int i = this.size;
+    while ((i > 0) && (this.start[i-1] > s)) {
+      this.start[i] = this.start[i-1];
+      this.end[i] = this.end[i-1];
+      --i;
+    }
+    this.start[i] = s;
+    this.end[i] = e;
+    ++this.size;
+
+    // Coalesce overlapping or adjacent spans
+    int n = 0;
+    for (int j = 1; j < this.size; ++j) {
+      if (this.start[j] <= this.end[n]) {
+        this.end[n] = Math.max(this.end[n], this.end[j]);
+      } else {
+        ++n;
+        this.start[n] = this.start[j];
+        this.end[n] = this.end[j];
+      }
+    }
+    this.size = n + 1;
+
+    // Over budget, merge across the smallest gap
+    if (this.size > MAX_RANGES) {
+      int merge = 0;
+      int minGap = Integer.MAX_VALUE;
+      for (int j = 0; j < this.size - 1; ++j) {
+        final int gap = this.start[j+1] - this.end[j];
+        if (gap < minGap) {
+          minGap = gap;
+          merge = j;
+        }
+      }
+      this.end[merge] = this.end[merge+1];
+      for (int j = merge + 1; j < this.size - 1; ++j) {
+        this.start[j] = this.start[j+1];
+        this.end[j] = this.end[j+1];
+      }
+      --this.size;
+    }
+  }
+
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  int getStart(int index) {
+    return this.start[index];
+  }
+
+  int getCount(int index) {
+    return this.end[index] - this.start[index];
+  }
+
+  void clear() {
+    this.size = 0;
+  }
+}
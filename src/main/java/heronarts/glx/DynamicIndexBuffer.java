@@ -29,9 +29,18 @@ import org.lwjgl.system.MemoryUtil;
 public class DynamicIndexBuffer implements BGFXEngine.Resource, BGFXEngine.Buffer.Index {
 
   private final GLX glx;
-  private final ByteBuffer indexData;
+  private ByteBuffer indexData;
   private final short indexBufferHandle;
-  private final int numIndices;
+  private final boolean resizable;
+  private int numIndices;
+  private int capacity;
+  private final int indexSize;
+
+  // Set when the capacity has grown, the next update must upload the full capacity
+  // so that bgfx resizes the GPU buffer once rather than to each upload size
+  private boolean resized = false;
+
+  private final DirtyRanges dirty = new DirtyRanges();
 
   /**
    * Constructs a new dynamic index buffer
@@ -51,14 +60,36 @@ public class DynamicIndexBuffer implements BGFXEngine.Resource, BGFXEngine.Buffe
    * @param int32 Whether to use int32 size rather than int16 for index references (for large buffers > 65K)
    */
   public DynamicIndexBuffer(GLX glx, int numIndices, boolean int32) {
+    this(glx, numIndices, int32, false);
+  }
+
+  /**
+   * Constructs a new dynamic index buffer. A resizable buffer may later be given a
+   * different number of indices with setNumIndices(), its capacity grows
+   * geometrically and is never reduced.
+   *
+   * @param glx GLX instance
+   * @param numIndices How many indices are initially in the buffer (number of indices, not bytes)
+   * @param int32 Whether to use int32 size rather than int16 for index references (for large buffers > 65K)
+   * @param resizable Whether the number of indices may grow beyond the initial size
+   */
+  public DynamicIndexBuffer(GLX glx, int numIndices, boolean int32, boolean resizable) {
     glx.assertBgfxThreadAllocation(this);
     this.glx = glx;
-    this.indexData = MemoryUtil.memAlloc((int32 ? Integer.BYTES : Short.BYTES) * numIndices);
-    this.indexBufferHandle = bgfx_create_dynamic_index_buffer(numIndices, int32 ? BGFX_BUFFER_INDEX32 : BGFX_BUFFER_NONE);
+    this.resizable = resizable;
+    this.indexSize = int32 ? Integer.BYTES : Short.BYTES;
+    this.capacity = resizable ? Math.max(1, numIndices) : numIndices;
+    this.indexData = glx.bgfx.memory.alloc(this.indexSize * this.capacity);
+    this.indexBufferHandle = bgfx_create_dynamic_index_buffer(this.capacity,
+      (int32 ? BGFX_BUFFER_INDEX32 : BGFX_BUFFER_NONE) |
+      (resizable ? BGFX_BUFFER_ALLOW_RESIZE : BGFX_BUFFER_NONE)
+    );
     if (this.indexBufferHandle == BGFX_INVALID_HANDLE) {
       throw new BGFXEngine.ResourceException("Could not create DynamicIndexBuffer");
     }
     this.numIndices = numIndices;
+    this.indexData.limit(this.indexSize * numIndices);
+    glx.bgfx.resources.register(this, this.indexData.capacity(), this.indexData.capacity());
   }
 
   /**
@@ -79,6 +110,55 @@ public class DynamicIndexBuffer implements BGFXEngine.Resource, BGFXEngine.Buffe
     return this.numIndices;
   }
 
+  /**
+   * Returns the number of indices the buffer can hold without reallocation
+   *
+   * @return Index capacity
+   */
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  public boolean isResizable() {
+    return this.resizable;
+  }
+
+  /**
+   * Sets the number of live indices in the buffer, growing its capacity if
+   * necessary. Existing index data is preserved, the index data buffer is
+   * rewound with its limit set to the new size. Note that the buffer returned by
+   * getIndexData() may change after this call.
+   *
+   * @param numIndices Number of indices
+   */
+  public void setNumIndices(int numIndices) {
+    this.glx.assertBgfxThreadUpdate(this);
+    if (numIndices < 0) {
+      throw new IllegalArgumentException("DynamicIndexBuffer cannot have negative size: " + numIndices);
+    }
+    if (numIndices > this.capacity) {
+      if (!this.resizable) {
+        throw new IllegalStateException("DynamicIndexBuffer is not resizable, cannot grow from " + this.capacity + " to " + numIndices);
+      }
+      grow(Math.max(numIndices, this.capacity * 2));
+    }
+    this.numIndices = numIndices;
+    this.dirty.clear();
+    this.indexData.clear().limit(this.indexSize * numIndices);
+  }
+
+  private void grow(int capacity) {
+    // The old memory may still be referenced by frames in flight, so it cannot be
+    // reallocated in place and is freed once those frames are done
+    final ByteBuffer indexData = this.glx.bgfx.memory.alloc(this.indexSize * capacity);
+    MemoryUtil.memCopy(MemoryUtil.memAddress0(this.indexData), MemoryUtil.memAddress0(indexData), (long) this.indexSize * this.numIndices);
+    this.glx.bgfx.memFreeDeferred(this.indexData);
+    this.indexData = indexData;
+    this.capacity = capacity;
+    this.resized = true;
+    this.glx.bgfx.resources.update(this, indexData.capacity(), indexData.capacity());
+  }
+
   /**
    * Returns the raw data buffer used to populate the buffer
    *
@@ -93,12 +173,49 @@ public class DynamicIndexBuffer implements BGFXEngine.Resource, BGFXEngine.Buffe
     bgfx_set_dynamic_index_buffer(this.indexBufferHandle, 0, this.numIndices);
   }
 
+  @Override
+  public void setIndexBuffer(Encoder encoder) {
+    bgfx_encoder_set_dynamic_index_buffer(encoder.getHandle(), this.indexBufferHandle, 0, this.numIndices);
+  }
+
   /**
-   * Update the underlying BGFX index buffer with the index buffer data
+   * Marks a range of indices as modified, so that the next call to update() only
+   * uploads the dirty ranges rather than the whole buffer. Ranges are written
+   * directly into the index data at their absolute offsets.
+   *
+   * @param startIndex Position of first modified index
+   * @param numIndices Number of modified indices
+   */
+  public void markDirty(int startIndex, int numIndices) {
+    this.dirty.add(startIndex, numIndices, this.numIndices);
+  }
+
+  /**
+   * Update the underlying BGFX index buffer with the index buffer data. If any
+   * ranges were marked dirty since the last update, only those are uploaded. The
+   * first update after the capacity has grown uploads the entire capacity,
+   * ignoring dirty ranges.
    */
   public void update() {
     this.glx.assertBgfxThreadUpdate(this);
-    bgfx_update_dynamic_index_buffer(this.indexBufferHandle, 0, bgfx_make_ref(this.indexData));
+    if (this.resized) {
+      final ByteBuffer all = MemoryUtil.memByteBuffer(MemoryUtil.memAddress0(this.indexData), this.capacity * this.indexSize);
+      bgfx_update_dynamic_index_buffer(this.indexBufferHandle, 0, bgfx_make_ref(all));
+      this.resized = false;
+      this.dirty.clear();
+      return;
+    }
+    if (this.dirty.isEmpty()) {
+      bgfx_update_dynamic_index_buffer(this.indexBufferHandle, 0, bgfx_make_ref(this.indexData));
+      return;
+    }
+    final long address = MemoryUtil.memAddress0(this.indexData);
+    for (int i = 0; i < this.dirty.size(); ++i) {
+      final int start = this.dirty.getStart(i);
+      final ByteBuffer range = MemoryUtil.memByteBuffer(address + (long) start * this.indexSize, this.dirty.getCount(i) * this.indexSize);
+      bgfx_update_dynamic_index_buffer(this.indexBufferHandle, start, bgfx_make_ref(range));
+    }
+    this.dirty.clear();
   }
 
   /**
@@ -107,7 +224,8 @@ public class DynamicIndexBuffer implements BGFXEngine.Resource, BGFXEngine.Buffe
   public void dispose() {
     if (this.glx.bgfxThreadDispose(this)) {
       bgfx_destroy_dynamic_index_buffer(this.indexBufferHandle);
-      MemoryUtil.memFree(this.indexData);
+      this.glx.bgfx.memory.free(this.indexData);
+      this.glx.bgfx.resources.unregister(this);
     }
   }
 }
@@ -28,10 +28,18 @@ public class DynamicVertexBuffer implements BGFXEngine.Resource, BGFXEngine.Buff
 
   private final GLX glx;
   private final VertexDeclaration vertexDeclaration;
-  private final ByteBuffer vertexData;
+  private ByteBuffer vertexData;
 
   private final short vertexBufferHandle;
-  private final int numVertices;
+  private final boolean resizable;
+  private int numVertices;
+  private int capacity;
+
+  // Set when the capacity has grown, the next update must upload the full capacity
+  // so that bgfx resizes the GPU buffer once rather than to each upload size
+  private boolean resized = false;
+
+  private final DirtyRanges dirty = new DirtyRanges();
 
   public DynamicVertexBuffer(GLX glx, int numVertices) {
     this(glx, numVertices, VertexDeclaration.Attribute.POSITION, VertexDeclaration.Attribute.COLOR0);
@@ -43,25 +51,98 @@ public class DynamicVertexBuffer implements BGFXEngine.Resource, BGFXEngine.Buff
   }
 
   public DynamicVertexBuffer(GLX glx, int numVertices, VertexDeclaration.Attribute ... attributes) {
+    this(glx, numVertices, false, attributes);
+  }
+
+  /**
+   * Constructs a dynamic vertex buffer. A resizable buffer may later be given a
+   * different number of vertices with setNumVertices(), its capacity grows
+   * geometrically and is never reduced.
+   *
+   * @param glx GLX instance
+   * @param numVertices Initial number of vertices
+   * @param resizable Whether the number of vertices may grow beyond the initial size
+   * @param attributes Vertex attributes
+   */
+  public DynamicVertexBuffer(GLX glx, int numVertices, boolean resizable, VertexDeclaration.Attribute ... attributes) {
     glx.assertBgfxThreadAllocation(this);
     this.glx = glx;
-    this.vertexDeclaration = new VertexDeclaration(glx, attributes);
-    this.vertexData = MemoryUtil.memAlloc(this.vertexDeclaration.getStride() * numVertices);
-    this.vertexBufferHandle = bgfx_create_dynamic_vertex_buffer(numVertices, this.vertexDeclaration.getHandle(), BGFX_BUFFER_NONE);
+    this.resizable = resizable;
+    this.vertexDeclaration = VertexDeclaration.of(glx, attributes);
+    this.capacity = resizable ? Math.max(1, numVertices) : numVertices;
+    this.vertexData = glx.bgfx.memory.alloc(this.vertexDeclaration.getStride() * this.capacity);
+    this.vertexBufferHandle = bgfx_create_dynamic_vertex_buffer(this.capacity, this.vertexDeclaration.getHandle(), resizable ? BGFX_BUFFER_ALLOW_RESIZE : BGFX_BUFFER_NONE);
     if (this.vertexBufferHandle == BGFX_INVALID_HANDLE) {
       throw new BGFXEngine.ResourceException("Could not create DynamicVertexBuffer");
     }
     this.numVertices = numVertices;
+    this.vertexData.limit(this.vertexDeclaration.getStride() * numVertices);
+    glx.bgfx.resources.register(this, this.vertexData.capacity(), this.vertexData.capacity());
   }
 
   public short getHandle() {
     return this.vertexBufferHandle;
   }
 
+  /**
+   * Returns the number of live vertices in the buffer
+   *
+   * @return Number of vertices that will be drawn
+   */
   public int getNumVertices() {
     return this.numVertices;
   }
 
+  /**
+   * Returns the number of vertices the buffer can hold without reallocation
+   *
+   * @return Vertex capacity
+   */
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  public boolean isResizable() {
+    return this.resizable;
+  }
+
+  /**
+   * Sets the number of live vertices in the buffer, growing its capacity if
+   * necessary. Existing vertex data is preserved, the vertex data buffer is
+   * rewound with its limit set to the new size. Note that the buffer returned by
+   * getVertexData() may change after this call.
+   *
+   * @param numVertices Number of vertices
+   */
+  public void setNumVertices(int numVertices) {
+    this.glx.assertBgfxThreadUpdate(this);
+    if (numVertices < 0) {
+      throw new IllegalArgumentException("DynamicVertexBuffer cannot have negative size: " + numVertices);
+    }
+    if (numVertices > this.capacity) {
+      if (!this.resizable) {
+        throw new IllegalStateException("DynamicVertexBuffer is not resizable, cannot grow from " + this.capacity + " to " + numVertices);
+      }
+      grow(Math.max(numVertices, this.capacity * 2));
+    }
+    this.numVertices = numVertices;
+    this.dirty.clear();
+    this.vertexData.clear().limit(this.vertexDeclaration.getStride() * numVertices);
+  }
+
+  private void grow(int capacity) {
+    // The old memory may still be referenced by frames in flight, so it cannot be
+    // reallocated in place and is freed once those frames are done
+    final int stride = this.vertexDeclaration.getStride();
+    final ByteBuffer vertexData = this.glx.bgfx.memory.alloc(stride * capacity);
+    MemoryUtil.memCopy(MemoryUtil.memAddress0(this.vertexData), MemoryUtil.memAddress0(vertexData), (long) stride * this.numVertices);
+    this.glx.bgfx.memFreeDeferred(this.vertexData);
+    this.vertexData = vertexData;
+    this.capacity = capacity;
+    this.resized = true;
+    this.glx.bgfx.resources.update(this, vertexData.capacity(), vertexData.capacity());
+  }
+
   public ByteBuffer getVertexData() {
     return this.vertexData;
   }
@@ -71,16 +152,59 @@ public class DynamicVertexBuffer implements BGFXEngine.Resource, BGFXEngine.Buff
     bgfx_set_dynamic_vertex_buffer(stream, this.vertexBufferHandle, 0, this.numVertices);
   }
 
+  @Override
+  public void setVertexBuffer(Encoder encoder, int stream) {
+    bgfx_encoder_set_dynamic_vertex_buffer(encoder.getHandle(), stream, this.vertexBufferHandle, 0, this.numVertices);
+  }
+
+  /**
+   * Marks a range of vertices as modified, so that the next call to update() only
+   * uploads the dirty ranges rather than the whole buffer. Ranges are written
+   * directly into the vertex data at their absolute offsets.
+   *
+   * @param startVertex Index of first modified vertex
+   * @param numVertices Number of modified vertices
+   */
+  public void markDirty(int startVertex, int numVertices) {
+    this.dirty.add(startVertex, numVertices, this.numVertices);
+  }
+
+  /**
+   * Uploads the vertex data to the GPU. If any ranges were marked dirty since the
+   * last update, only those ranges are uploaded. Otherwise the data between the
+   * position and limit of the vertex data buffer is uploaded in full. The first
+   * update after the capacity has grown uploads the entire capacity, ignoring
+   * dirty ranges.
+   */
   public void update() {
     this.glx.assertBgfxThreadUpdate(this);
-    bgfx_update_dynamic_vertex_buffer(this.vertexBufferHandle, 0, bgfx_make_ref(this.vertexData));
+    if (this.resized) {
+      final ByteBuffer all = MemoryUtil.memByteBuffer(MemoryUtil.memAddress0(this.vertexData), this.capacity * this.vertexDeclaration.getStride());
+      bgfx_update_dynamic_vertex_buffer(this.vertexBufferHandle, 0, bgfx_make_ref(all));
+      this.resized = false;
+      this.dirty.clear();
+      return;
+    }
+    if (this.dirty.isEmpty()) {
+      bgfx_update_dynamic_vertex_buffer(this.vertexBufferHandle, 0, bgfx_make_ref(this.vertexData));
+      return;
+    }
+    final int stride = this.vertexDeclaration.getStride();
+    final long address = MemoryUtil.memAddress0(this.vertexData);
+    for (int i = 0; i < this.dirty.size(); ++i) {
+      final int start = this.dirty.getStart(i);
+      final ByteBuffer range = MemoryUtil.memByteBuffer(address + (long) start * stride, this.dirty.getCount(i) * stride);
+      bgfx_update_dynamic_vertex_buffer(this.vertexBufferHandle, start, bgfx_make_ref(range));
+    }
+    this.dirty.clear();
   }
 
   public void dispose() {
     if (this.glx.bgfxThreadDispose(this)) {
       bgfx_destroy_dynamic_vertex_buffer(this.vertexBufferHandle);
-      MemoryUtil.memFree(this.vertexData);
+      this.glx.bgfx.memory.free(this.vertexData);
       this.vertexDeclaration.dispose();
+      this.glx.bgfx.resources.unregister(this);
     }
   }
 }
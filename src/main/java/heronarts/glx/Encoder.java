@@ -0,0 +1,97 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.glx;
+
+import static org.lwjgl.bgfx.BGFX.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Wrapper around a bgfx encoder, which records draw calls. The BGFX thread always
+ * has a main encoder, which is equivalent to the global bgfx_set_* and bgfx_submit
+ * API. Other threads may begin their own encoder with BGFXEngine.beginEncoder() to
+ * record draw calls in parallel. A thread encoder must be ended before the BGFX
+ * thread finishes the frame, it cannot be held across frames.
+ *
+ * Note that shared programs which hold per-draw state, such as fill colors or
+ * lighting, must not be submitted from multiple encoders concurrently.
+ */
+public class Encoder implements AutoCloseable {
+
+  private final long handle;
+  private final boolean forThread;
+  private boolean ended = false;
+
+  Encoder(long handle, boolean forThread) {
+    if (handle == NULL) {
+      throw new BGFXEngine.ResourceException("Could not begin bgfx encoder");
+    }
+    this.handle = handle;
+    this.forThread = forThread;
+  }
+
+  /**
+   * Gets the native bgfx_encoder_t pointer, for use with bgfx_encoder_* functions
+   *
+   * @return Native encoder pointer
+   */
+  public long getHandle() {
+    if (this.ended) {
+      throw new IllegalStateException("Encoder may not be used after it has been ended");
+    }
+    return this.handle;
+  }
+
+  /**
+   * Whether this encoder was begun for a thread other than the BGFX thread
+   *
+   * @return <code>true</code> if this is a thread encoder
+   */
+  public boolean isThreadEncoder() {
+    return this.forThread;
+  }
+
+  public Encoder setState(long bgfxState) {
+    bgfx_encoder_set_state(getHandle(), bgfxState, 0);
+    return this;
+  }
+
+  public Encoder setTransform(FloatBuffer transform) {
+    bgfx_encoder_set_transform(getHandle(), transform);
+    return this;
+  }
+
+  /**
+   * Ends a thread encoder, after which it may no longer be used. The BGFX thread's
+   * main encoder is never ended.
+   */
+  public void end() {
+    if (this.forThread && !this.ended) {
+      this.ended = true;
+      bgfx_encoder_end(this.handle);
+    }
+  }
+
+  @Override
+  public void close() {
+    end();
+  }
+
+}
@@ -0,0 +1,539 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.glx;
+
+import static org.lwjgl.bgfx.BGFX.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.lwjgl.bgfx.BGFXCacheReadCallback;
+import org.lwjgl.bgfx.BGFXCacheReadSizeCallback;
+import org.lwjgl.bgfx.BGFXCacheWriteCallback;
+import org.lwjgl.bgfx.BGFXCallbackInterface;
+import org.lwjgl.bgfx.BGFXCallbackVtbl;
+import org.lwjgl.bgfx.BGFXCaptureBeginCallback;
+import org.lwjgl.bgfx.BGFXCaptureEndCallback;
+import org.lwjgl.bgfx.BGFXCaptureFrameCallback;
+import org.lwjgl.bgfx.BGFXFatalCallback;
+import org.lwjgl.bgfx.BGFXProfilerBegin;
+import org.lwjgl.bgfx.BGFXProfilerBeginLiteral;
+import org.lwjgl.bgfx.BGFXProfilerEnd;
+import org.lwjgl.bgfx.BGFXScreenShotCallback;
+import org.lwjgl.bgfx.BGFXTraceVarArgsCallback;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Asynchronous capture of the rendered window contents. Captures are requested on
+ * the BGFX thread just before a frame is submitted, and bgfx hands back the pixels
+ * from its render thread once that frame has actually been rendered. The pixel data
+ * is copied into a pool of reusable off-heap buffers and delivered to a listener
+ * on a dedicated capture thread, so that neither the BGFX thread nor the renderer
+ * ever block on consumers. If a listener falls behind and no buffers are free,
+ * captured frames are dropped.
+ *
+ * Capture requires GLX.Flags.frameCapture to be set, as it relies upon installing
+ * callbacks when bgfx is initialized.
+ */
+public class FrameCapture {
+
+  /**
+   * Receives captured frames
+   */
+  public interface Listener {
+    /**
+     * Invoked on the capture thread when a frame has been captured. The frame
+     * and its data are only valid for the duration of this call, the buffer is
+     * recycled afterwards.
+     *
+     * @param frame Captured frame
+     */
+    public void onFrameCaptured(Frame frame);
+  }
+
+  /**
+   * A captured frame of pixel data, in the backbuffer format (typically BGRA8)
+   */
+  public static class Frame {
+
+    private ByteBuffer data = null;
+    private int frameNumber;
+    private int width;
+    private int height;
+    private int pitch;
+    private int size;
+    private boolean yflip;
+    private Listener listener;
+
+    private Frame() {}
+
+    private void set(int frameNumber, Listener listener, int width, int height, int pitch, long data, int size, boolean yflip) {
+      if ((this.data == null) || (this.data.capacity() < size)) {
+        this.data = (this.data == null) ? MemoryUtil.memAlloc(size) : MemoryUtil.memRealloc(this.data, size);
+      }
+      MemoryUtil.memCopy(data, MemoryUtil.memAddress0(this.data), size);
+      this.data.clear().limit(size);
+      this.frameNumber = frameNumber;
+      this.listener = listener;
+      this.width = width;
+      this.height = height;
+      this.pitch = pitch;
+      this.size = size;
+      this.yflip = yflip;
+    }
+
+    private void free() {
+      if (this.data != null) {
+        MemoryUtil.memFree(this.data);
+        this.data = null;
+      }
+    }
+
+    /**
+     * @return The bgfx frame number this capture was rendered in
+     */
+    public int getFrameNumber() {
+      return this.frameNumber;
+    }
+
+    public int getWidth() {
+      return this.width;
+    }
+
+    public int getHeight() {
+      return this.height;
+    }
+
+    /**
+     * @return Number of bytes per row of pixel data
+     */
+    public int getPitch() {
+      return this.pitch;
+    }
+
+    /**
+     * @return Total number of bytes of pixel data
+     */
+    public int getSize() {
+      return this.size;
+    }
+
+    /**
+     * @return Whether the rows of pixel data are stored bottom to top
+     */
+    public boolean isYFlip() {
+      return this.yflip;
+    }
+
+    /**
+     * Gets the raw pixel data, valid only within Listener.onFrameCaptured()
+     *
+     * @return Pixel data
+     */
+    public ByteBuffer getData() {
+      return this.data;
+    }
+  }
+
+  /**
+   * Listener which writes captured frames into a sequence of files. Each file holds
+   * a fixed number of frame slots, each slot is a header of 6 native-order ints
+   * (frame number, width, height, pitch, size, yflip) followed by the pixel data.
+   * Files are only created when one fills up or the frame size changes, and frames
+   * are written straight from their off-heap buffers, no allocation is performed
+   * per frame.
+   */
+  public static class FileSequence implements Listener, AutoCloseable {
+
+    public static final int HEADER_BYTES = 6 * Integer.BYTES;
+
+    private final File directory;
+    private final String prefix;
+    private final int framesPerFile;
+
+    private final ByteBuffer header = ByteBuffer.allocateDirect(HEADER_BYTES).order(ByteOrder.nativeOrder());
+
+    private FileChannel channel = null;
+    private int fileIndex = 0;
+    private int slotSize = 0;
+    private int numSlots = 0;
+    private int slot = 0;
+    private boolean failed = false;
+
+    /**
+     * Creates a file sequence writer
+     *
+     * @param directory Directory to write files into
+     * @param prefix Prefix for file names, which are suffixed by sequence number
+     * @param framesPerFile Maximum number of frames to write in each file
+     */
+    public FileSequence(File directory, String prefix, int framesPerFile) {
+      if (framesPerFile <= 0) {
+        throw new IllegalArgumentException("FileSequence framesPerFile must be positive: " + framesPerFile);
+      }
+      this.directory = directory;
+      this.prefix = prefix;
+      this.framesPerFile = framesPerFile;
+    }
+
+    @Override
+    public void onFrameCaptured(Frame frame) {
+      if (this.failed) {
+        return;
+      }
+      try {
+        final int slotSize = HEADER_BYTES + frame.size;
+        if ((this.channel == null) || (this.slot == this.numSlots) || (this.slotSize != slotSize)) {
+          nextFile(slotSize);
+        }
+        final long offset = (long) this.slot * this.slotSize;
+        this.header.clear();
+        this.header
+          .putInt(frame.frameNumber)
+          .putInt(frame.width)
+          .putInt(frame.height)
+          .putInt(frame.pitch)
+          .putInt(frame.size)
+          .putInt(frame.yflip ? 1 : 0)
+          .flip();
+        write(this.header, offset);
+        write(frame.data.clear().limit(frame.size), offset + HEADER_BYTES);
+        ++this.slot;
+      } catch (IOException iox) {
+        GLX.error(iox, "Error writing FrameCapture file sequence, no more frames will be written: " + iox.getMessage());
+        this.failed = true;
+        close();
+      }
+    }
+
+    private void write(ByteBuffer buffer, long position) throws IOException {
+      while (buffer.hasRemaining()) {
+        position += this.channel.write(buffer, position);
+      }
+    }
+
+    private void nextFile(int slotSize) throws IOException {
+      closeFile();
+      this.slotSize = slotSize;
+      this.numSlots = Math.max(1, Math.min(this.framesPerFile, Integer.MAX_VALUE / slotSize));
+      this.slot = 0;
+      final File file = new File(this.directory, String.format("%s-%06d.bin", this.prefix, this.fileIndex++));
+      this.channel = FileChannel.open(file.toPath(),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE
+      );
+    }
+
+    private void closeFile() {
+      if (this.channel != null) {
+        try {
+          this.channel.close();
+        } catch (IOException iox) {
+          GLX.error(iox, "Error closing FrameCapture file: " + iox.getMessage());
+        }
+        this.channel = null;
+      }
+    }
+
+    @Override
+    public void close() {
+      closeFile();
+    }
+  }
+
+  public static final int DEFAULT_POOL_SIZE = 4;
+
+  // Sentinel for continuous capture
+  private static final int CONTINUOUS = -1;
+
+  // Prefix of the tag passed to bgfx, followed by the frame number of the request
+  private static final String SCREEN_SHOT_TAG = "glx-capture-";
+
+  // Requests that bgfx has not answered after this many frames are abandoned, e.g.
+  // on the Noop renderer or when the backbuffer is lost or reset
+  private static final int REQUEST_EXPIRE_FRAMES = 8;
+
+  // Frames that are free to be filled, and those awaiting delivery
+  private final BlockingQueue<Frame> freeFrames;
+  private final BlockingQueue<Frame> capturedFrames;
+  private final Frame[] allFrames;
+
+  // Slots of requests in flight, filled by the BGFX thread and claimed by the bgfx
+  // render thread when the tagged capture arrives. A slot is free when its listener
+  // is null, the frame number is written before the listener is published.
+  private final int[] requestFrameNumbers;
+  private final AtomicReferenceArray<Listener> requestListeners;
+
+  private volatile Listener listener = null;
+  private volatile int framesRemaining = 0;
+
+  private final AtomicLong numDropped = new AtomicLong(0);
+
+  private Thread thread = null;
+  private BGFXCallbackInterface callbacks = null;
+
+  FrameCapture() {
+    this(DEFAULT_POOL_SIZE);
+  }
+
+  FrameCapture(int poolSize) {
+    this.freeFrames = new ArrayBlockingQueue<>(poolSize);
+    this.capturedFrames = new ArrayBlockingQueue<>(poolSize);
+    this.allFrames = new Frame[poolSize];
+    for (int i = 0; i < poolSize; ++i) {
+      this.allFrames[i] = new Frame();
+      this.freeFrames.add(this.allFrames[i]);
+    }
+    this.requestFrameNumbers = new int[poolSize];
+    this.requestListeners = new AtomicReferenceArray<>(poolSize);
+  }
+
+  /**
+   * Begins capturing every rendered frame, until stop() is called. May be called
+   * from any thread.
+   *
+   * @param listener Listener to receive captured frames on the capture thread
+   * @return this
+   */
+  public FrameCapture start(Listener listener) {
+    return capture(listener, CONTINUOUS);
+  }
+
+  /**
+   * Captures the next rendered frame only. May be called from any thread.
+   *
+   * @param listener Listener to receive the captured frame on the capture thread
+   * @return this
+   */
+  public FrameCapture request(Listener listener) {
+    return capture(listener, 1);
+  }
+
+  private synchronized FrameCapture capture(Listener listener, int numFrames) {
+    if (this.callbacks == null) {
+      throw new IllegalStateException("FrameCapture requires GLX.Flags.frameCapture to be enabled");
+    }
+    if (listener == null) {
+      throw new IllegalArgumentException("FrameCapture listener may not be null");
+    }
+    if (this.thread == null) {
+      this.thread = new Thread(this::deliver, "GLX Frame Capture");
+      this.thread.setDaemon(true);
+      this.thread.start();
+    }
+    this.framesRemaining = numFrames;
+    this.listener = listener;
+    return this;
+  }
+
+  /**
+   * Stops capturing frames. Frames already requested may still be delivered.
+   */
+  public void stop() {
+    this.listener = null;
+  }
+
+  public boolean isCapturing() {
+    return this.listener != null;
+  }
+
+  /**
+   * @return Number of frames dropped because no buffer was free or too many were in flight
+   */
+  public long getNumDropped() {
+    return this.numDropped.get();
+  }
+
+  /**
+   * Invoked on the BGFX thread before submitting a frame
+   *
+   * @param frameNumber Number of the frame about to be submitted
+   */
+  void beforeFrame(int frameNumber) {
+    final Listener listener = this.listener;
+    if (listener == null) {
+      return;
+    }
+    final int framesRemaining = this.framesRemaining;
+    if (framesRemaining != CONTINUOUS) {
+      if (framesRemaining <= 1) {
+        this.listener = null;
+      }
+      this.framesRemaining = framesRemaining - 1;
+    }
+
+    // Abandon stale requests and find a free slot, don't queue up more requests
+    // than we have buffers for
+    int free = -1;
+    for (int i = 0; i < this.requestFrameNumbers.length; ++i) {
+      final Listener pending = this.requestListeners.get(i);
+      if (pending == null) {
+        free = i;
+      } else if ((frameNumber - this.requestFrameNumbers[i] > REQUEST_EXPIRE_FRAMES) &&
+                 this.requestListeners.compareAndSet(i, pending, null)) {
+        this.numDropped.incrementAndGet();
+        free = i;
+      }
+    }
+    if (free < 0) {
+      this.numDropped.incrementAndGet();
+      return;
+    }
+    this.requestFrameNumbers[free] = frameNumber;
+    this.requestListeners.set(free, listener);
+    bgfx_request_screen_shot(BGFX_INVALID_HANDLE, SCREEN_SHOT_TAG + frameNumber);
+  }
+
+  /**
+   * Invoked by bgfx on its render thread with the contents of the backbuffer
+   */
+  private void onScreenShot(String tag, int width, int height, int pitch, long data, int size, boolean yflip) {
+    if ((tag == null) || !tag.startsWith(SCREEN_SHOT_TAG)) {
+      // Not one of ours
+      return;
+    }
+    final int frameNumber;
+    try {
+      frameNumber = Integer.parseInt(tag.substring(SCREEN_SHOT_TAG.length()));
+    } catch (NumberFormatException nfx) {
+      return;
+    }
+    Listener listener = null;
+    for (int i = 0; i < this.requestFrameNumbers.length; ++i) {
+      final Listener pending = this.requestListeners.get(i);
+      if ((pending != null) &&
+          (this.requestFrameNumbers[i] == frameNumber) &&
+          this.requestListeners.compareAndSet(i, pending, null)) {
+        listener = pending;
+        break;
+      }
+    }
+    if (listener == null) {
+      // Request already expired
+      return;
+    }
+
+    final Frame frame = this.freeFrames.poll();
+    if (frame == null) {
+      this.numDropped.incrementAndGet();
+      return;
+    }
+    frame.set(frameNumber, listener, width, height, pitch, data, size, yflip);
+    this.capturedFrames.add(frame);
+  }
+
+  private void deliver() {
+    while (true) {
+      final Frame frame;
+      try {
+        frame = this.capturedFrames.take();
+      } catch (InterruptedException ix) {
+        break;
+      }
+      try {
+        frame.listener.onFrameCaptured(frame);
+      } catch (Exception x) {
+        GLX.error(x, "Unhandled exception in FrameCapture.Listener: " + x.getMessage());
+      }
+      frame.listener = null;
+      this.freeFrames.add(frame);
+    }
+  }
+
+  /**
+   * Creates the callback interface to be passed to bgfx_init(). The other
+   * callbacks mirror the default bgfx behavior, without trace output.
+   *
+   * @return Callback interface
+   */
+  BGFXCallbackInterface createCallbacks() {
+    final BGFXCallbackVtbl vtbl = BGFXCallbackVtbl.calloc()
+      .fatal(BGFXFatalCallback.create((_this, filePath, line, code, str) -> {
+        final String message = "bgfx fatal error " + code + " at " + MemoryUtil.memUTF8Safe(filePath) + ":" + line + ": " + MemoryUtil.memUTF8Safe(str);
+        if (code == BGFX_FATAL_DEBUG_CHECK) {
+          GLX.error(message);
+        } else {
+          // Not safe to continue, just as the default bgfx handler would abort
+          GLX.error(new RuntimeException(message), message);
+          Runtime.getRuntime().halt(1);
+        }
+      }))
+      .trace_vargs(BGFXTraceVarArgsCallback.create((_this, filePath, line, format, argList) -> {}))
+      .profiler_begin(BGFXProfilerBegin.create((_this, name, abgr, filePath, line) -> {}))
+      .profiler_begin_literal(BGFXProfilerBeginLiteral.create((_this, name, abgr, filePath, line) -> {}))
+      .profiler_end(BGFXProfilerEnd.create(_this -> {}))
+      .cache_read_size(BGFXCacheReadSizeCallback.create((_this, id) -> 0))
+      .cache_read(BGFXCacheReadCallback.create((_this, id, data, size) -> false))
+      .cache_write(BGFXCacheWriteCallback.create((_this, id, data, size) -> {}))
+      .screen_shot(BGFXScreenShotCallback.create((_this, filePath, width, height, pitch, data, size, yflip) -> {
+        onScreenShot(MemoryUtil.memUTF8Safe(filePath), width, height, pitch, data, size, yflip);
+      }))
+      .capture_begin(BGFXCaptureBeginCallback.create((_this, width, height, pitch, format, yflip) -> {}))
+      .capture_end(BGFXCaptureEndCallback.create(_this -> {}))
+      .capture_frame(BGFXCaptureFrameCallback.create((_this, data, size) -> {}));
+    this.callbacks = BGFXCallbackInterface.calloc().vtbl(vtbl);
+    return this.callbacks;
+  }
+
+  /**
+   * Must only be called after bgfx_shutdown(), once the callbacks will no longer be invoked
+   */
+  void dispose() {
+    if (this.thread != null) {
+      this.thread.interrupt();
+      try {
+        this.thread.join();
+      } catch (InterruptedException ix) {
+        GLX.error(ix, "Interrupted awaiting FrameCapture thread");
+      }
+      this.thread = null;
+    }
+    for (Frame frame : this.allFrames) {
+      frame.free();
+    }
+    if (this.callbacks != null) {
+      final BGFXCallbackVtbl vtbl = this.callbacks.vtbl();
+      vtbl.fatal().free();
+      vtbl.trace_vargs().free();
+      vtbl.profiler_begin().free();
+      vtbl.profiler_begin_literal().free();
+      vtbl.profiler_end().free();
+      vtbl.cache_read_size().free();
+      vtbl.cache_read().free();
+      vtbl.cache_write().free();
+      vtbl.screen_shot().free();
+      vtbl.capture_begin().free();
+      vtbl.capture_end().free();
+      vtbl.capture_frame().free();
+      vtbl.free();
+      this.callbacks.free();
+      this.callbacks = null;
+    }
+  }
+
+}
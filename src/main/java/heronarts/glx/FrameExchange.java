@@ -0,0 +1,138 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.glx;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import heronarts.lx.LXEngine;
+import heronarts.lx.model.LXModel;
+
+/**
+ * Triple buffer which hands LED frames from the LX engine thread to the BGFX
+ * thread. The engine thread copies each completed frame into the back buffer and
+ * publishes it by swapping it with the ready buffer. The BGFX thread swaps the
+ * ready buffer to the front only when a new frame has been published. Neither
+ * thread waits on the other, and each engine frame is copied exactly once.
+ */
+class FrameExchange {
+
+  private static final int INDEX_MASK = 0x3;
+  private static final int FRESH = 0x4;
+  private static final int CHANGED = 0x8;
+
+  private final LXEngine engine;
+  private final LXEngine.Frame[] frames = new LXEngine.Frame[3];
+  private final boolean detectChanges;
+
+  // Index of the ready buffer, plus FRESH if it has not been taken yet and
+  // CHANGED if it differs from the frame published before it
+  private final AtomicInteger ready = new AtomicInteger(2);
+
+  // Engine thread only
+  private int backIndex = 1;
+  private int publishedIndex = 0;
+  private LXModel publishedModel = null;
+  private int publishedModelGeneration = -1;
+
+  // BGFX thread only
+  private int frontIndex = 0;
+
+  /**
+   * Creates the frame exchange. If change detection is enabled, the engine thread
+   * compares each frame against the previous one when it is published, otherwise
+   * every published frame is considered changed.
+   *
+   * @param glx GLX instance
+   * @param detectChanges Whether to compare frames for changes
+   */
+  FrameExchange(GLX glx, boolean detectChanges) {
+    this.engine = glx.engine;
+    this.detectChanges = detectChanges;
+    for (int i = 0; i < this.frames.length; ++i) {
+      this.frames[i] = new LXEngine.Frame(glx);
+    }
+    this.engine.getFrameNonThreadSafe(this.frames[this.frontIndex]);
+  }
+
+  /**
+   * Gets the frame currently held by the BGFX thread
+   *
+   * @return Front frame
+   */
+  LXEngine.Frame getFrontFrame() {
+    return this.frames[this.frontIndex];
+  }
+
+  /**
+   * Copies the engine's most recently completed frame into the back buffer and
+   * publishes it. Engine thread only.
+   */
+  void publish() {
+    final LXEngine.Frame back = this.frames[this.backIndex];
+    this.engine.copyFrameThreadSafe(back);
+    boolean changed = !this.detectChanges || isChanged(back);
+
+    int previous, next;
+    do {
+      previous = this.ready.get();
+      // A frame that replaces one never taken inherits its change
+      if ((previous & (FRESH | CHANGED)) == (FRESH | CHANGED)) {
+        changed = true;
+      }
+      next = this.backIndex | FRESH | (changed ? CHANGED : 0);
+    } while (!this.ready.compareAndSet(previous, next));
+
+    this.publishedIndex = this.backIndex;
+    this.backIndex = previous & INDEX_MASK;
+  }
+
+  private boolean isChanged(LXEngine.Frame frame) {
+    // NOTE: the previously published frame is never the back buffer, and is only
+    // read by the BGFX thread, so it is safe to compare against here
+    final LXEngine.Frame published = this.frames[this.publishedIndex];
+    boolean changed = false;
+    final LXModel model = frame.getModel();
+    if ((model != this.publishedModel) || (model.getGeneration() != this.publishedModelGeneration)) {
+      this.publishedModel = model;
+      this.publishedModelGeneration = model.getGeneration();
+      changed = true;
+    }
+    changed |= !Arrays.equals(frame.getColors(false), published.getColors(false));
+    changed |= !Arrays.equals(frame.getColors(true), published.getColors(true));
+    return changed;
+  }
+
+  /**
+   * Takes the most recently published frame, if one has been published since the
+   * last call. BGFX thread only.
+   *
+   * @return -1 if there was no new frame, otherwise 1 if the new frame changed
+   *   or 0 if it is the same as the previous one
+   */
+  int take() {
+    if ((this.ready.get() & FRESH) == 0) {
+      return -1;
+    }
+    final int previous = this.ready.getAndSet(this.frontIndex);
+    this.frontIndex = previous & INDEX_MASK;
+    return ((previous & CHANGED) != 0) ? 1 : 0;
+  }
+
+}
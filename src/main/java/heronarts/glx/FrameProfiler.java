@@ -0,0 +1,251 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.glx;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Breaks down the time spent in each frame on the BGFX thread into phases. Each
+ * phase keeps a ring buffer of its most recent samples, from which percentile
+ * statistics can be computed. Samples are only ever written by the BGFX thread,
+ * snapshots may be safely taken from any thread without locking.
+ */
+public class FrameProfiler {
+
+  public enum Phase {
+    /**
+     * Total time of a drawn frame, from copying the LED frame through bgfx_frame()
+     */
+    FRAME("Frame"),
+
+    /**
+     * Disposal of queued BGFX resources
+     */
+    DISPOSE("Dispose"),
+
+    /**
+     * Tasks submitted to run on the BGFX thread
+     */
+    TASKS("Tasks"),
+
+    /**
+     * Hand-off of the latest engine LED frame to the UI
+     */
+    COPY_FRAME("Copy Frame"),
+
+    /**
+     * UI loop tasks
+     */
+    LOOP("Loop"),
+
+    /**
+     * Walk of the 2d hierarchy determining which contexts need rendering
+     */
+    PREDRAW("Predraw"),
+
+    /**
+     * Total time spent rendering 2d contexts with NanoVG in a frame
+     */
+    RENDER_2D("Render 2d"),
+
+    /**
+     * Time spent rendering an individual UI2dContext, one sample per context
+     */
+    RENDER_2D_CONTEXT("Render 2d Context"),
+
+    /**
+     * Total time spent drawing 3d contexts in a frame
+     */
+    DRAW_3D("Draw 3d"),
+
+    /**
+     * The call to bgfx_frame(), which includes waiting on the renderer and vsync
+     */
+    BGFX_FRAME("bgfx_frame");
+
+    public final String label;
+
+    private Phase(String label) {
+      this.label = label;
+    }
+
+    @Override
+    public String toString() {
+      return this.label;
+    }
+  }
+
+  /**
+   * Immutable summary of the samples in a histogram at a point in time.
+   * All times are in nanoseconds.
+   */
+  public static class Snapshot {
+
+    public final Phase phase;
+    public final int numSamples;
+    public final long p50;
+    public final long p95;
+    public final long p99;
+    public final long max;
+    public final long mean;
+
+    private Snapshot(Phase phase, long[] samples) {
+      this.phase = phase;
+      this.numSamples = samples.length;
+      if (samples.length == 0) {
+        this.p50 = this.p95 = this.p99 = this.max = this.mean = 0;
+        return;
+      }
+      Arrays.sort(samples);
+      long sum = 0;
+      for (long sample : samples) {
+        sum += sample;
+      }
+      this.p50 = percentile(samples, .5);
+      this.p95 = percentile(samples, .95);
+      this.p99 = percentile(samples, .99);
+      this.max = samples[samples.length - 1];
+      this.mean = sum / samples.length;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+      final int index = (int) Math.ceil(percentile * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: p50=%dus p95=%dus p99=%dus max=%dus",
+        this.phase.label,
+        this.p50 / 1000,
+        this.p95 / 1000,
+        this.p99 / 1000,
+        this.max / 1000
+      );
+    }
+  }
+
+  /**
+   * Single-writer ring buffer of timing samples
+   */
+  public static class Histogram {
+
+    private final Phase phase;
+    private final AtomicLongArray samples;
+
+    // NOTE: only ever incremented by the single writer thread
+    private volatile long count = 0;
+
+    private Histogram(Phase phase, int capacity) {
+      this.phase = phase;
+      this.samples = new AtomicLongArray(capacity);
+    }
+
+    private void record(long nanos) {
+      final long count = this.count;
+      this.samples.lazySet((int) (count % this.samples.length()), nanos);
+      this.count = count + 1;
+    }
+
+    /**
+     * Total number of samples ever recorded into this histogram
+     *
+     * @return Number of samples
+     */
+    public long getCount() {
+      return this.count;
+    }
+
+    /**
+     * Takes a snapshot of the most recent samples in the histogram. Safe to call
+     * from any thread. Samples recorded concurrently may or may not be included.
+     *
+     * @return Snapshot of percentile statistics
+     */
+    public Snapshot getSnapshot() {
+      final int size = (int) Math.min(this.count, this.samples.length());
+      final long[] copy = new long[size];
+      for (int i = 0; i < size; ++i) {
+        copy[i] = this.samples.get(i);
+      }
+      return new Snapshot(this.phase, copy);
+    }
+  }
+
+  public static final int DEFAULT_CAPACITY = 512;
+
+  private final Histogram[] histograms = new Histogram[Phase.values().length];
+
+  FrameProfiler() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  FrameProfiler(int capacity) {
+    for (Phase phase : Phase.values()) {
+      this.histograms[phase.ordinal()] = new Histogram(phase, capacity);
+    }
+  }
+
+  /**
+   * Records the time elapsed in a phase, which must be called on the BGFX thread
+   *
+   * @param phase Phase of the frame
+   * @param startNanos Start time of the phase, from System.nanoTime()
+   * @return The current time in nanos, for convenient chaining of phases
+   */
+  public long record(Phase phase, long startNanos) {
+    final long now = System.nanoTime();
+    this.histograms[phase.ordinal()].record(now - startNanos);
+    return now;
+  }
+
+  /**
+   * Records a pre-computed duration for a phase, which must be called on the BGFX thread
+   *
+   * @param phase Phase of the frame
+   * @param nanos Duration in nanoseconds
+   */
+  public void recordNanos(Phase phase, long nanos) {
+    this.histograms[phase.ordinal()].record(nanos);
+  }
+
+  public Histogram getHistogram(Phase phase) {
+    return this.histograms[phase.ordinal()];
+  }
+
+  /**
+   * Gets a snapshot of the given phase statistics, may be called from any thread
+   *
+   * @param phase Phase of the frame
+   * @return Snapshot of phase timing statistics
+   */
+  public Snapshot getSnapshot(Phase phase) {
+    return getHistogram(phase).getSnapshot();
+  }
+
+  void log() {
+    for (Histogram histogram : this.histograms) {
+      if (histogram.getCount() > 0) {
+        GLX.log(histogram.getSnapshot().toString());
+      }
+    }
+  }
+
+}
@@ -18,16 +18,21 @@
 
 package heronarts.glx;
 
+import static org.lwjgl.bgfx.BGFX.BGFX_STATE_DEPTH_TEST_LESS;
+import static org.lwjgl.bgfx.BGFX.BGFX_STATE_PT_LINES;
+import static org.lwjgl.bgfx.BGFX.BGFX_STATE_PT_TRISTRIP;
 import static org.lwjgl.util.tinyfd.TinyFileDialogs.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.FloatBuffer;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.Platform;
 
 import heronarts.glx.shader.Phong;
 import heronarts.glx.shader.Tex2d;
+import heronarts.glx.shader.ShaderProgram;
 import heronarts.glx.shader.Text3d;
 import heronarts.glx.shader.UniformFill;
 import heronarts.glx.shader.VertexFill;
@@ -72,12 +77,80 @@ public class GLX extends LX {
     public final VertexBuffer.UnitCubeEdges unitCubeEdges;
     public final VertexBuffer.UnitCubeWithNormals unitCubeWithNormals;
 
+    private static final int MATRIX_SIZE = 16;
+
     private VertexBuffers() {
       this.unitCube = new VertexBuffer.UnitCube(GLX.this);
       this.unitCubeWithNormals = new VertexBuffer.UnitCubeWithNormals(GLX.this);
       this.unitCubeEdges = new VertexBuffer.UnitCubeEdges(GLX.this);
     }
 
+    /**
+     * Draws a batch of solid unit cubes, centered at the origin, each with its own
+     * transform and fill color. Must be called on the BGFX thread.
+     *
+     * @param view View to draw into
+     * @param transforms Column-major 4x4 world-space transforms, 16 floats per cube from the buffer position, which may be heap or direct
+     * @param colors ARGB fill color of each cube
+     */
+    public void drawCubes(View view, FloatBuffer transforms, int[] colors) {
+      drawCubes(view, ShaderProgram.DEFAULT_BGFX_STATE | BGFX_STATE_DEPTH_TEST_LESS, transforms, colors);
+    }
+
+    /**
+     * Draws a batch of solid unit cubes with the given state, which should not
+     * include a primitive type
+     *
+     * @param view View to draw into
+     * @param bgfxState BGFX state flags
+     * @param transforms Column-major 4x4 world-space transforms, 16 floats per cube from the buffer position, which may be heap or direct
+     * @param colors ARGB fill color of each cube
+     */
+    public void drawCubes(View view, long bgfxState, FloatBuffer transforms, int[] colors) {
+      drawBatch(view, bgfxState | BGFX_STATE_PT_TRISTRIP, this.unitCube, transforms, colors);
+    }
+
+    /**
+     * Draws a batch of unit cube outlines, e.g. bounding boxes, each with its own
+     * transform and line color. Must be called on the BGFX thread.
+     *
+     * @param view View to draw into
+     * @param transforms Column-major 4x4 world-space transforms, 16 floats per cube from the buffer position, which may be heap or direct
+     * @param colors ARGB line color of each cube
+     */
+    public void drawCubeEdges(View view, FloatBuffer transforms, int[] colors) {
+      drawCubeEdges(view, ShaderProgram.DEFAULT_BGFX_STATE | BGFX_STATE_DEPTH_TEST_LESS, transforms, colors);
+    }
+
+    /**
+     * Draws a batch of unit cube outlines with the given state, which should not
+     * include a primitive type
+     *
+     * @param view View to draw into
+     * @param bgfxState BGFX state flags
+     * @param transforms Column-major 4x4 world-space transforms, 16 floats per cube from the buffer position, which may be heap or direct
+     * @param colors ARGB line color of each cube
+     */
+    public void drawCubeEdges(View view, long bgfxState, FloatBuffer transforms, int[] colors) {
+      drawBatch(view, bgfxState | BGFX_STATE_PT_LINES, this.unitCubeEdges, transforms, colors);
+    }
+
+    private void drawBatch(View view, long bgfxState, VertexBuffer vertexBuffer, FloatBuffer transforms, int[] colors) {
+      final int numInstances = Math.min(transforms.remaining() / MATRIX_SIZE, colors.length);
+      final int position = transforms.position();
+      try (MemoryStack stack = MemoryStack.stackPush()) {
+        // bgfx reads the matrix from native memory and copies it when the transform
+        // is set, so each one goes through a stack buffer in case transforms is on
+        // the heap
+        final FloatBuffer transform = stack.mallocFloat(MATRIX_SIZE);
+        for (int i = 0; i < numInstances; ++i) {
+          transform.put(0, transforms, position + i * MATRIX_SIZE, MATRIX_SIZE);
+          bgfx.encoder.setTransform(transform);
+          program.uniformFill.submit(view, bgfxState, colors[i], vertexBuffer);
+        }
+      }
+    }
+
     private void dispose() {
       this.unitCube.dispose();
       this.unitCubeWithNormals.dispose();
@@ -95,6 +168,74 @@ public class GLX extends LX {
     public String windowTitle = "GLX";
     public boolean useOpenGL = false;
     public boolean confirmChangesOnQuit = false;
+
+    /**
+     * Runs without a visible window or GPU, using the GLFW null platform and the
+     * bgfx Noop renderer. The full UI runs on the CPU, nothing is displayed. The
+     * window size flags determine the size of the virtual framebuffer.
+     */
+    public boolean headless = false;
+
+    /**
+     * When enabled, the BGFX thread only renders a frame when something has
+     * actually changed: a UI redraw, camera motion, input, or new LED colors
+     */
+    public boolean renderOnDemand = false;
+
+    /**
+     * When enabled, bgfx renderer statistics are collected after every frame,
+     * see BGFXEngine.getStats()
+     */
+    public boolean bgfxStats = false;
+
+    /**
+     * Number of frames that disposal of BGFX resources is deferred by, so that
+     * memory is never freed while bgfx may still reference it from a frame in
+     * flight. bgfx requires referenced memory to live for at least 2 frames.
+     */
+    public int disposeFrameLatency = 2;
+
+    /**
+     * Time budget for tasks submitted via BGFXEngine.submit() on each iteration
+     * of the BGFX main loop, in milliseconds
+     */
+    public double taskBudgetMs = 2;
+
+    /**
+     * Installs bgfx callbacks at initialization so that rendered frames may be
+     * captured via BGFXEngine.capture
+     */
+    public boolean frameCapture = false;
+
+    /**
+     * Maximum number of bytes of freed vertex and index buffer memory that are
+     * retained by BGFXEngine.memory for reuse
+     */
+    public long memoryPoolMaxFreeBytes = 64L * 1024 * 1024;
+
+    /**
+     * Resolution of the UIPointCloud cache of precomputed depth orders, built in the
+     * background for each model. The cached view directions are the lattice points
+     * on the surface of a cube, 26 at resolution 1 and 98 at resolution 2. When the
+     * cache is ready, camera motion picks the nearest cached order rather than
+     * sorting. A value of 0 disables the cache.
+     */
+    public int pointCloudSortCacheResolution = 0;
+
+    /**
+     * Maximum number of bytes used by the UIPointCloud depth order cache, the
+     * resolution is reduced for large models to fit within this budget
+     */
+    public long pointCloudSortCacheMaxBytes = 128L * 1024 * 1024;
+
+    /**
+     * Number of worker threads which record draw calls with their own bgfx encoders,
+     * in parallel with the BGFX thread. Used by UIModelMeshes for models with many
+     * meshes. Meshes recorded in parallel are not drawn in a fixed order, which may
+     * change the blending of overlapping translucent meshes. At most 7, a value of
+     * 0 records everything on the BGFX thread.
+     */
+    public int encoderThreads = 0;
   }
 
   public final Flags flags;
@@ -129,7 +270,12 @@ public class GLX extends LX {
    */
   public final UI ui;
 
-  public final LXEngine.Frame uiFrame;
+  /**
+   * The LED frame being drawn by the UI. This is swapped for a newer frame on the
+   * BGFX thread when the engine has produced one, so it should be read again on
+   * every draw rather than held onto.
+   */
+  public LXEngine.Frame uiFrame;
 
   boolean flagUIDebug = false;
 
@@ -160,8 +306,7 @@ public class GLX extends LX {
     this.ui = buildUI();
 
     // Initialize LED frame buffer for the UI
-    this.uiFrame = new LXEngine.Frame(this);
-    this.engine.getFrameNonThreadSafe(this.uiFrame);
+    this.uiFrame = this.bgfx.initUIFrame();
   }
 
   private class WindowDelegate implements GLXWindow.Delegate {
@@ -263,20 +408,15 @@ public class GLX extends LX {
   }
 
   /**
-   * Returns true if we are on the BGFX thread and can immediately dispose
-   * of this resource. Otherwise it is scheduled to run later on the BGFX thread
-   * at which point this call will succeed.
+   * Returns true if the resource can be disposed of immediately. Otherwise it is
+   * scheduled to be disposed later on the BGFX thread, once no frames that could
+   * reference it are still in flight, at which point this call will succeed.
    *
    * @param resource Resource
    * @return true if the dispose code should run now
    */
   public boolean bgfxThreadDispose(BGFXEngine.Resource resource) {
-    if (Thread.currentThread() != this.bgfx.thread) {
-      debug(resource.getClass().getName() + ".dispose() queued to run on BGFX thread");
-      this.bgfx.threadSafeDisposeQueue.add(resource);
-      return false;
-    }
-    return true;
+    return this.bgfx.retire(resource);
   }
 
   public void run() {
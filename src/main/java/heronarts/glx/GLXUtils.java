@@ -134,6 +134,8 @@ public class GLXUtils {
       case BGFX_RENDERER_TYPE_DIRECT3D11, BGFX_RENDERER_TYPE_DIRECT3D12 -> "dx11/";
       case BGFX_RENDERER_TYPE_OPENGL -> "glsl/";
       case BGFX_RENDERER_TYPE_METAL -> "metal/";
+      // Noop renderer only parses shader headers, any valid binaries will do
+      case BGFX_RENDERER_TYPE_NOOP -> "glsl/";
       default -> throw new IOException("No shaders supported for " + bgfx_get_renderer_name(renderer) + " renderer");
     };
   }
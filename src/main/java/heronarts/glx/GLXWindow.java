@@ -231,6 +231,12 @@ public class GLXWindow {
       }
     });
 
+    // Headless mode uses the null platform, which requires no display
+    if (flags.headless) {
+      GLX.log("GLXWindow running headless on GLFW null platform");
+      glfwInitHint(GLFW_PLATFORM, GLFW_PLATFORM_NULL);
+    }
+
     // Initialize GLFW. Most GLFW functions will not work before doing this.
     if (!glfwInit()) {
       throw new RuntimeException("Unable to initialize GLFW");
@@ -247,6 +253,7 @@ public class GLXWindow {
     glfwWindowHint(GLFW_SCALE_TO_MONITOR, GLFW_FALSE);
     glfwWindowHint(GLFW_COCOA_RETINA_FRAMEBUFFER, GLFW_TRUE);
     glfwWindowHint(GLFW_RESIZABLE, flags.windowResizable ? GLFW_TRUE : GLFW_FALSE);
+    glfwWindowHint(GLFW_VISIBLE, flags.headless ? GLFW_FALSE : GLFW_TRUE);
 
     // Detect window/framebuffer sizes and content scale
     try (MemoryStack stack = MemoryStack.stackPush()) {
@@ -309,7 +316,7 @@ public class GLXWindow {
       this.windowHeight = ySize.get(0);
 
       // Restore window position if restored from preferences
-      if (this.windowPosX >= 0 && this.windowPosY >= 0) {
+      if (this.windowPosX >= 0 && this.windowPosY >= 0 && !flags.headless) {
         this.windowPosX = LXUtils.constrain(this.windowPosX, this.displayX, this.displayX + this.displayWidth - this.windowWidth);
         this.windowPosY = LXUtils.constrain(this.windowPosY, this.displayY, this.displayY + this.displayHeight - this.windowHeight);
         GLX.log("GLXWindow setWindowPos: " + this.windowPosX + "," + this.windowPosY);
@@ -527,6 +534,18 @@ public class GLXWindow {
     glfwSetWindowShouldClose(this.handle, shouldClose);
   }
 
+  /**
+   * Requests that the window close and the application shut down, which is the
+   * way to end a headless run. May be called from any thread.
+   */
+  public void close() {
+    setShouldClose(true);
+  }
+
+  public boolean isHeadless() {
+    return this.flags.headless;
+  }
+
   protected void setWindowSize(int windowWidth, int windowHeight) {
     assertMainThread();
     glfwSetWindowSize(this.handle, windowWidth, windowHeight);
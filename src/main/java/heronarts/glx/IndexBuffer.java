@@ -21,7 +21,6 @@ package heronarts.glx;
 import static org.lwjgl.bgfx.BGFX.*;
 
 import java.nio.ByteBuffer;
-import org.lwjgl.system.MemoryUtil;
 
 public abstract class IndexBuffer implements BGFXEngine.Resource, BGFXEngine.Buffer.Index {
 
@@ -33,7 +32,7 @@ public abstract class IndexBuffer implements BGFXEngine.Resource, BGFXEngine.Buf
   public IndexBuffer(GLX glx, int numIndices, boolean int32) {
     glx.assertBgfxThreadAllocation(this);
     this.glx = glx;
-    this.indexData = MemoryUtil.memAlloc((int32 ? Integer.BYTES : Short.BYTES) * numIndices);
+    this.indexData = glx.bgfx.memory.alloc((int32 ? Integer.BYTES : Short.BYTES) * numIndices);
     bufferData(this.indexData);
     this.indexData.flip();
     this.indexBufferHandle = bgfx_create_index_buffer(bgfx_make_ref(this.indexData), int32 ? BGFX_BUFFER_INDEX32 : BGFX_BUFFER_NONE);
@@ -41,6 +40,7 @@ public abstract class IndexBuffer implements BGFXEngine.Resource, BGFXEngine.Buf
       throw new BGFXEngine.ResourceException("Could not create IndexBuffer");
     }
     this.numIndices = numIndices;
+    glx.bgfx.resources.register(this, this.indexData.capacity(), this.indexData.capacity());
   }
 
   protected abstract void bufferData(ByteBuffer buffer);
@@ -62,10 +62,16 @@ public abstract class IndexBuffer implements BGFXEngine.Resource, BGFXEngine.Buf
     bgfx_set_index_buffer(this.indexBufferHandle, 0, this.numIndices);
   }
 
+  @Override
+  public void setIndexBuffer(Encoder encoder) {
+    bgfx_encoder_set_index_buffer(encoder.getHandle(), this.indexBufferHandle, 0, this.numIndices);
+  }
+
   public void dispose() {
     if (this.glx.bgfxThreadDispose(this)) {
       bgfx_destroy_index_buffer(this.indexBufferHandle);
-      MemoryUtil.memFree(this.indexData);
+      this.glx.bgfx.memory.free(this.indexData);
+      this.glx.bgfx.resources.unregister(this);
     }
   }
 }
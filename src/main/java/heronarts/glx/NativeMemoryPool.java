@@ -0,0 +1,268 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+
+package heronarts.glx;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Size-class pool for the off-heap memory backing vertex and index buffers.
+ * Requests are rounded up to a size class, with four classes per power of two so
+ * that at most 25% of a block is wasted. Freed blocks are kept on a per-class free
+ * list and handed out again for later requests of the same class, up to a limit
+ * on the total free bytes retained. Requests larger than the biggest class are
+ * passed straight through to the system allocator. Buffers returned by alloc()
+ * have a capacity of exactly the requested size, and must be returned with free().
+ */
+public class NativeMemoryPool {
+
+  /**
+   * Immutable snapshot of pool statistics. Sizes are in bytes.
+   */
+  public static class Stats {
+    /**
+     * Bytes currently handed out by the pool, measured by size class
+     */
+    public final long liveBytes;
+
+    /**
+     * Bytes held on free lists, available for reuse
+     */
+    public final long freeBytes;
+
+    /**
+     * Largest value ever reached by liveBytes
+     */
+    public final long highWaterBytes;
+
+    public final long numAllocs;
+    public final long numReused;
+
+    private Stats(NativeMemoryPool pool) {
+      this.liveBytes = pool.liveBytes;
+      this.freeBytes = pool.freeBytes;
+      this.highWaterBytes = pool.highWaterBytes;
+      this.numAllocs = pool.numAllocs;
+      this.numReused = pool.numReused;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Native memory pool: live=%dKB free=%dKB highWater=%dKB allocs=%d reused=%d",
+        this.liveBytes / 1024,
+        this.freeBytes / 1024,
+        this.highWaterBytes / 1024,
+        this.numAllocs,
+        this.numReused
+      );
+    }
+  }
+
+  private static final int MIN_BLOCK_LOG2 = 6;
+  private static final int MAX_BLOCK_LOG2 = 26;
+  private static final int CLASSES_PER_LOG2 = 4;
+
+  static final long MIN_BLOCK_SIZE = 1L << MIN_BLOCK_LOG2;
+  static final long MAX_BLOCK_SIZE = 1L << MAX_BLOCK_LOG2;
+
+  private static final int NUM_CLASSES = (MAX_BLOCK_LOG2 - MIN_BLOCK_LOG2) * CLASSES_PER_LOG2 + 1;
+
+  /**
+   * Stack of free block addresses for one size class
+   */
+  private static class FreeList {
+    private long[] addresses = new long[8];
+    private int size = 0;
+
+    private void push(long address) {
+      if (this.size == this.addresses.length) {
+        final long[] grown = new long[this.addresses.length * 2];
+        System.arraycopy(this.addresses, 0, grown, 0, this.size);
+        this.addresses = grown;
+      }
+      this.addresses[this.size++] = address;
+    }
+
+    private long pop() {
+      return this.addresses[--this.size];
+    }
+  }
+
+  private final FreeList[] freeLists = new FreeList[NUM_CLASSES];
+  private final long maxFreeBytes;
+
+  private long liveBytes = 0;
+  private long freeBytes = 0;
+  private long highWaterBytes = 0;
+  private long numAllocs = 0;
+  private long numReused = 0;
+  private boolean disposed = false;
+
+  /**
+   * Constructs a memory pool
+   *
+   * @param maxFreeBytes Maximum number of bytes retained on free lists, beyond which freed blocks are released
+   */
+  public NativeMemoryPool(long maxFreeBytes) {
+    this.maxFreeBytes = maxFreeBytes;
+    for (int i = 0; i < NUM_CLASSES; ++i) {
+      this.freeLists[i] = new FreeList();
+    }
+  }
+
+  static int classIndex(long size) {
+    if (size <= MIN_BLOCK_SIZE) {
+      return 0;
+    }
+    // size is in the range (2^log2, 2^(log2+1)], split into equal steps
+    final int log2 = 63 - Long.numberOfLeadingZeros(size - 1);
+    final int step = (int) ((size - 1 - (1L << log2)) >> (log2 - 2));
+    return (log2 - MIN_BLOCK_LOG2) * CLASSES_PER_LOG2 + step + 1;
+  }
+
+  static long classSize(int classIndex) {
+    if (classIndex == 0) {
+      return MIN_BLOCK_SIZE;
+    }
+    final int log2 = MIN_BLOCK_LOG2 + (classIndex - 1) / CLASSES_PER_LOG2;
+    final int step = (classIndex - 1) % CLASSES_PER_LOG2;
+    return (1L << log2) + (step + 1) * (1L << (log2 - 2));
+  }
+
+  /**
+   * Allocates a buffer of native memory. Contents are undefined.
+   *
+   * @param size Size in bytes
+   * @return Buffer with position 0 and capacity and limit of size
+   */
+  public synchronized ByteBuffer alloc(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("NativeMemoryPool cannot allocate negative size: " + size);
+    }
+    ++this.numAllocs;
+    if (size > MAX_BLOCK_SIZE) {
+      addLive(size);
+      return MemoryUtil.memAlloc(size);
+    }
+    final int classIndex = classIndex(size);
+    final long classSize = classSize(classIndex);
+    final FreeList freeList = this.freeLists[classIndex];
+    long address;
+    if (freeList.size > 0) {
+      address = freeList.pop();
+      this.freeBytes -= classSize;
+      ++this.numReused;
+    } else {
+      address = MemoryUtil.nmemAllocChecked(classSize);
+    }
+    addLive(classSize);
+    return MemoryUtil.memByteBuffer(address, size);
+  }
+
+  private void addLive(long bytes) {
+    this.liveBytes += bytes;
+    this.highWaterBytes = Math.max(this.highWaterBytes, this.liveBytes);
+  }
+
+  /**
+   * Returns a buffer obtained from alloc() to the pool. The buffer must not be
+   * referenced by bgfx any longer, i.e. this should be called from a deferred
+   * dispose on the BGFX thread.
+   *
+   * @param buffer Buffer previously returned by alloc()
+   */
+  public synchronized void free(ByteBuffer buffer) {
+    if (buffer == null) {
+      return;
+    }
+    final int size = buffer.capacity();
+    if (size > MAX_BLOCK_SIZE) {
+      this.liveBytes -= size;
+      MemoryUtil.memFree(buffer);
+      return;
+    }
+    final int classIndex = classIndex(size);
+    final long classSize = classSize(classIndex);
+    this.liveBytes -= classSize;
+    final long address = MemoryUtil.memAddress0(buffer);
+    if (this.disposed || (this.freeBytes + classSize > this.maxFreeBytes)) {
+      MemoryUtil.nmemFree(address);
+    } else {
+      this.freeLists[classIndex].push(address);
+      this.freeBytes += classSize;
+    }
+  }
+
+  /**
+   * Pre-allocates free blocks so that a known upcoming allocation pattern, such as
+   * the buffers for a model of a given size, does not hit the system allocator.
+   * Blocks beyond the free byte limit are not retained.
+   *
+   * @param size Size in bytes of each expected allocation
+   * @param count Number of blocks of this size to make available
+   */
+  public synchronized void prewarm(int size, int count) {
+    if (this.disposed || (size > MAX_BLOCK_SIZE)) {
+      return;
+    }
+    final int classIndex = classIndex(size);
+    final long classSize = classSize(classIndex);
+    final FreeList freeList = this.freeLists[classIndex];
+    while ((freeList.size < count) && (this.freeBytes + classSize <= this.maxFreeBytes)) {
+      freeList.push(MemoryUtil.nmemAllocChecked(classSize));
+      this.freeBytes += classSize;
+    }
+  }
+
+  /**
+   * Releases all blocks held on free lists back to the system
+   */
+  public synchronized void trim() {
+    for (int i = 0; i < NUM_CLASSES; ++i) {
+      final FreeList freeList = this.freeLists[i];
+      while (freeList.size > 0) {
+        MemoryUtil.nmemFree(freeList.pop());
+      }
+    }
+    this.freeBytes = 0;
+  }
+
+  /**
+   * Gets a snapshot of the pool statistics, may be called from any thread
+   *
+   * @return Statistics snapshot
+   */
+  public synchronized Stats getStats() {
+    return new Stats(this);
+  }
+
+  void log() {
+    GLX.log(getStats().toString());
+  }
+
+  /**
+   * Releases all free blocks, subsequently freed buffers are released immediately
+   */
+  synchronized void dispose() {
+    this.disposed = true;
+    trim();
+  }
+}
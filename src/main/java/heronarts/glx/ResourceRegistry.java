@@ -0,0 +1,275 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.glx;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import heronarts.glx.ui.UI2dComponent;
+
+/**
+ * Central accounting of live BGFX resources. Tracks the number of resources, the
+ * native (off-heap) memory they hold and the GPU memory they occupy, in total, per
+ * resource class, and per owner. The owner of a resource is the UI component that
+ * was being drawn on the BGFX thread when it was allocated, unless specified
+ * explicitly. Peak values are kept as high-water marks. Query methods may be called
+ * from any thread and return snapshots.
+ */
+public class ResourceRegistry {
+
+  /**
+   * Immutable snapshot of resource usage for a class, owner, or the total
+   */
+  public static class Usage {
+    public final String label;
+    public final int count;
+    public final long nativeBytes;
+    public final long gpuBytes;
+    public final int peakCount;
+    public final long peakNativeBytes;
+    public final long peakGpuBytes;
+
+    private Usage(Counter counter) {
+      this.label = counter.label;
+      this.count = counter.count;
+      this.nativeBytes = counter.nativeBytes;
+      this.gpuBytes = counter.gpuBytes;
+      this.peakCount = counter.peakCount;
+      this.peakNativeBytes = counter.peakNativeBytes;
+      this.peakGpuBytes = counter.peakGpuBytes;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: count=%d native=%dKB gpu=%dKB (peak count=%d native=%dKB gpu=%dKB)",
+        this.label,
+        this.count,
+        this.nativeBytes / 1024,
+        this.gpuBytes / 1024,
+        this.peakCount,
+        this.peakNativeBytes / 1024,
+        this.peakGpuBytes / 1024
+      );
+    }
+  }
+
+  private static class Counter {
+    private final String label;
+    private int count = 0;
+    private long nativeBytes = 0;
+    private long gpuBytes = 0;
+    private int peakCount = 0;
+    private long peakNativeBytes = 0;
+    private long peakGpuBytes = 0;
+
+    private Counter(String label) {
+      this.label = label;
+    }
+
+    private void add(int count, long nativeBytes, long gpuBytes) {
+      this.count += count;
+      this.nativeBytes += nativeBytes;
+      this.gpuBytes += gpuBytes;
+      this.peakCount = Math.max(this.peakCount, this.count);
+      this.peakNativeBytes = Math.max(this.peakNativeBytes, this.nativeBytes);
+      this.peakGpuBytes = Math.max(this.peakGpuBytes, this.gpuBytes);
+    }
+  }
+
+  private static class Entry {
+    private final Counter classCounter;
+    private final Object owner;
+    private final Counter ownerCounter;
+    private long nativeBytes = 0;
+    private long gpuBytes = 0;
+
+    private Entry(Counter classCounter, Object owner, Counter ownerCounter) {
+      this.classCounter = classCounter;
+      this.owner = owner;
+      this.ownerCounter = ownerCounter;
+    }
+
+    private void add(int count, long nativeBytes, long gpuBytes) {
+      this.classCounter.add(count, nativeBytes, gpuBytes);
+      this.ownerCounter.add(count, nativeBytes, gpuBytes);
+    }
+  }
+
+  private static final String NO_OWNER = "(no owner)";
+
+  private final BGFXEngine bgfx;
+
+  private final Counter total = new Counter("Total");
+  private final Map<BGFXEngine.Resource, Entry> entries = new IdentityHashMap<>();
+  private final Map<Class<?>, Counter> classCounters = new HashMap<>();
+  private final Map<Object, Counter> ownerCounters = new IdentityHashMap<>();
+  private final Counter noOwnerCounter = new Counter(NO_OWNER);
+
+  // Only ever touched by the BGFX thread
+  private final List<Object> ownerStack = new ArrayList<>();
+
+  ResourceRegistry(BGFXEngine bgfx) {
+    this.bgfx = bgfx;
+  }
+
+  /**
+   * Marks the given object as the owner of resources allocated on the BGFX thread
+   * until the matching call to popOwner()
+   *
+   * @param owner Owner of resources, typically a UI component
+   */
+  public void pushOwner(Object owner) {
+    this.ownerStack.add(owner);
+  }
+
+  public void popOwner() {
+    this.ownerStack.remove(this.ownerStack.size() - 1);
+  }
+
+  /**
+   * Registers a newly allocated resource, attributed to the current owner
+   *
+   * @param resource Resource
+   * @param nativeBytes Off-heap memory held by the resource
+   * @param gpuBytes GPU memory occupied by the resource
+   */
+  public void register(BGFXEngine.Resource resource, long nativeBytes, long gpuBytes) {
+    Object owner = null;
+    if ((Thread.currentThread() == this.bgfx.thread) && !this.ownerStack.isEmpty()) {
+      owner = this.ownerStack.get(this.ownerStack.size() - 1);
+    }
+    register(resource, owner, nativeBytes, gpuBytes);
+  }
+
+  /**
+   * Registers a resource with an explicit owner. If the resource is already
+   * registered, its memory usage is updated.
+   *
+   * @param resource Resource
+   * @param owner Owner of the resource, may be null
+   * @param nativeBytes Off-heap memory held by the resource
+   * @param gpuBytes GPU memory occupied by the resource
+   */
+  public synchronized void register(BGFXEngine.Resource resource, Object owner, long nativeBytes, long gpuBytes) {
+    Entry entry = this.entries.get(resource);
+    if (entry == null) {
+      final Counter classCounter = this.classCounters.computeIfAbsent(resource.getClass(), cls -> new Counter(cls.getName()));
+      final Counter ownerCounter = (owner == null) ? this.noOwnerCounter :
+        this.ownerCounters.computeIfAbsent(owner, ResourceRegistry::newOwnerCounter);
+      entry = new Entry(classCounter, owner, ownerCounter);
+      this.entries.put(resource, entry);
+      entry.add(1, 0, 0);
+      this.total.add(1, 0, 0);
+    }
+    _update(entry, nativeBytes, gpuBytes);
+  }
+
+  private static Counter newOwnerCounter(Object owner) {
+    return new Counter((owner instanceof UI2dComponent component) ?
+      component.getDebugClassHierarchy() :
+      owner.getClass().getName()
+    );
+  }
+
+  /**
+   * Updates the memory usage of a registered resource, e.g. after it was resized
+   *
+   * @param resource Resource
+   * @param nativeBytes Off-heap memory now held by the resource
+   * @param gpuBytes GPU memory now occupied by the resource
+   */
+  public synchronized void update(BGFXEngine.Resource resource, long nativeBytes, long gpuBytes) {
+    final Entry entry = this.entries.get(resource);
+    if (entry != null) {
+      _update(entry, nativeBytes, gpuBytes);
+    }
+  }
+
+  private void _update(Entry entry, long nativeBytes, long gpuBytes) {
+    final long nativeDelta = nativeBytes - entry.nativeBytes;
+    final long gpuDelta = gpuBytes - entry.gpuBytes;
+    entry.nativeBytes = nativeBytes;
+    entry.gpuBytes = gpuBytes;
+    entry.add(0, nativeDelta, gpuDelta);
+    this.total.add(0, nativeDelta, gpuDelta);
+  }
+
+  /**
+   * Unregisters a resource when it is disposed
+   *
+   * @param resource Resource
+   */
+  public synchronized void unregister(BGFXEngine.Resource resource) {
+    final Entry entry = this.entries.remove(resource);
+    if (entry != null) {
+      entry.add(-1, -entry.nativeBytes, -entry.gpuBytes);
+      this.total.add(-1, -entry.nativeBytes, -entry.gpuBytes);
+      if ((entry.owner != null) && (entry.ownerCounter.count == 0)) {
+        this.ownerCounters.remove(entry.owner);
+      }
+    }
+  }
+
+  /**
+   * @return Total usage across all live resources
+   */
+  public synchronized Usage getTotal() {
+    return new Usage(this.total);
+  }
+
+  /**
+   * @return Usage per resource class, largest memory users first
+   */
+  public synchronized List<Usage> getUsageByClass() {
+    return snapshot(this.classCounters.values(), null);
+  }
+
+  /**
+   * @return Usage per owner of live resources, largest memory users first
+   */
+  public synchronized List<Usage> getUsageByOwner() {
+    return snapshot(this.ownerCounters.values(), this.noOwnerCounter);
+  }
+
+  private static List<Usage> snapshot(Iterable<Counter> counters, Counter extra) {
+    final List<Usage> usage = new ArrayList<>();
+    for (Counter counter : counters) {
+      usage.add(new Usage(counter));
+    }
+    if ((extra != null) && (extra.count > 0)) {
+      usage.add(new Usage(extra));
+    }
+    usage.sort(Comparator.comparingLong((Usage u) -> u.nativeBytes + u.gpuBytes).reversed());
+    return usage;
+  }
+
+  void log() {
+    GLX.log("BGFX resources " + getTotal());
+    for (Usage usage : getUsageByClass()) {
+      if (usage.count > 0) {
+        GLX.log("  " + usage);
+      }
+    }
+  }
+
+}
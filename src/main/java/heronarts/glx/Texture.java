@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 
+import org.lwjgl.bgfx.BGFXTextureInfo;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 
@@ -50,7 +51,11 @@ public class Texture implements BGFXEngine.Resource {
     } catch (IOException x) {
       throw new RuntimeException(x);
     }
-    this.th = bgfx_create_texture(bgfx_make_ref(this.textureData), BGFX_TEXTURE_NONE, 0, null);
+    try (MemoryStack stack = MemoryStack.stackPush()) {
+      final BGFXTextureInfo info = BGFXTextureInfo.malloc(stack);
+      this.th = bgfx_create_texture(bgfx_make_ref(this.textureData), BGFX_TEXTURE_NONE, 0, info);
+      glx.bgfx.resources.register(this, this.textureData.capacity(), info.storageSize());
+    }
   }
 
   /**
@@ -68,6 +73,7 @@ public class Texture implements BGFXEngine.Resource {
     this.stbiData = null;
     this.textureData = MemoryUtil.memAlloc(width * height).put(textureData).flip();
     this.th = bgfx_create_texture_2d(width, height, false, 1, textureFormat, BGFX_TEXTURE_NONE, bgfx_make_ref(this.textureData));
+    glx.bgfx.resources.register(this, this.textureData.capacity(), this.textureData.capacity());
   }
 
   private Texture(GLX glx, String path, boolean is2d) throws IOException {
@@ -82,7 +88,8 @@ public class Texture implements BGFXEngine.Resource {
       if (this.stbiData == null) {
         throw new IOException("STBI failed to load STBI image: " + path);
       }
-      this.th = bgfx_create_texture_2d(width.get(), height.get(), false, 1, BGFX_TEXTURE_FORMAT_RGBA8, BGFX_TEXTURE_NONE, bgfx_make_ref(this.stbiData));
+      this.th = bgfx_create_texture_2d(width.get(0), height.get(0), false, 1, BGFX_TEXTURE_FORMAT_RGBA8, BGFX_TEXTURE_NONE, bgfx_make_ref(this.stbiData));
+      glx.bgfx.resources.register(this, this.stbiData.capacity(), 4L * width.get(0) * height.get(0));
     }
   }
 
@@ -99,6 +106,7 @@ public class Texture implements BGFXEngine.Resource {
       if (this.textureData != null) {
         MemoryUtil.memFree(this.textureData);
       }
+      this.glx.bgfx.resources.unregister(this);
     }
   }
 }
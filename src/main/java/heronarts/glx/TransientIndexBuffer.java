@@ -0,0 +1,146 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+
+package heronarts.glx;
+
+import static org.lwjgl.bgfx.BGFX.*;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.bgfx.BGFXTransientIndexBuffer;
+
+/**
+ * An index buffer whose memory is allocated from the bgfx transient pool for a
+ * single frame. Contents must be written and submitted on the BGFX thread in the
+ * same frame they are allocated.
+ */
+public class TransientIndexBuffer implements BGFXEngine.Resource, BGFXEngine.Buffer.Index {
+
+  private final GLX glx;
+  private final boolean int32;
+  private final BGFXTransientIndexBuffer tib;
+
+  private ByteBuffer indexData = null;
+  private int numIndices = 0;
+  private int frameNumber = -1;
+
+  /**
+   * Constructs a new transient index buffer with int16 indices
+   *
+   * @param glx GLX instance
+   */
+  public TransientIndexBuffer(GLX glx) {
+    this(glx, false);
+  }
+
+  /**
+   * Constructs a new transient index buffer
+   *
+   * @param glx GLX instance
+   * @param int32 Whether to use int32 size rather than int16 for index references
+   */
+  public TransientIndexBuffer(GLX glx, boolean int32) {
+    glx.assertBgfxThreadAllocation(this);
+    this.glx = glx;
+    this.int32 = int32;
+    this.tib = BGFXTransientIndexBuffer.calloc();
+  }
+
+  /**
+   * Allocates space for the given number of indices in the current frame. If the
+   * transient pool is exhausted, nothing is allocated and false is returned.
+   *
+   * @param numIndices Number of indices to allocate (numeric count, not bytes)
+   * @return <code>true</code> if the indices were allocated
+   */
+  public boolean allocate(int numIndices) {
+    this.glx.assertBgfxThreadUpdate(this);
+    this.indexData = null;
+    this.numIndices = 0;
+    if (numIndices <= 0) {
+      return false;
+    }
+    final int available = bgfx_get_avail_transient_index_buffer(numIndices, this.int32);
+    if (available < numIndices) {
+      GLX.debug("TransientIndexBuffer could not allocate " + numIndices + " indices, " + available + " available");
+      return false;
+    }
+    bgfx_alloc_transient_index_buffer(this.tib, numIndices, this.int32);
+    this.indexData = this.tib.data();
+    this.numIndices = numIndices;
+    this.frameNumber = this.glx.bgfx.getFrameNumber();
+    return true;
+  }
+
+  /**
+   * Returns the raw index data for the current allocation, positioned at the
+   * start. Only valid until the end of the current frame.
+   *
+   * @return Index data buffer
+   */
+  public ByteBuffer getIndexData() {
+    assertAllocated();
+    return this.indexData;
+  }
+
+  public int getNumIndices() {
+    return this.numIndices;
+  }
+
+  public boolean isInt32() {
+    return this.int32;
+  }
+
+  public TransientIndexBuffer putIndex(int index) {
+    if (this.int32) {
+      getIndexData().putInt(index);
+    } else {
+      getIndexData().putShort((short) index);
+    }
+    return this;
+  }
+
+  private void assertAllocated() {
+    if (this.indexData == null) {
+      throw new IllegalStateException("TransientIndexBuffer has not been allocated");
+    }
+    if (this.frameNumber != this.glx.bgfx.getFrameNumber()) {
+      throw new IllegalStateException("TransientIndexBuffer was allocated in a previous frame");
+    }
+  }
+
+  @Override
+  public void setIndexBuffer() {
+    assertAllocated();
+    bgfx_set_transient_index_buffer(this.tib, 0, this.numIndices);
+  }
+
+  @Override
+  public void setIndexBuffer(Encoder encoder) {
+    assertAllocated();
+    bgfx_encoder_set_transient_index_buffer(encoder.getHandle(), this.tib, 0, this.numIndices);
+  }
+
+  public void dispose() {
+    if (this.glx.bgfxThreadDispose(this)) {
+      this.indexData = null;
+      this.tib.free();
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+
+package heronarts.glx;
+
+import static org.lwjgl.bgfx.BGFX.*;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.bgfx.BGFXTransientVertexBuffer;
+
+/**
+ * A vertex buffer whose memory is allocated from the bgfx transient pool for a
+ * single frame. Contents must be written and submitted on the BGFX thread in the
+ * same frame they are allocated, after which the memory is reclaimed by bgfx.
+ * No GPU resources are created or destroyed, so this is suited to geometry that
+ * changes every frame. The same object may be re-allocated and submitted any
+ * number of times per frame.
+ */
+public class TransientVertexBuffer implements BGFXEngine.Resource, BGFXEngine.Buffer.Vertex {
+
+  private final GLX glx;
+  private final VertexDeclaration vertexDeclaration;
+  private final BGFXTransientVertexBuffer tvb;
+
+  private ByteBuffer vertexData = null;
+  private VertexWriter writer = null;
+  private int numVertices = 0;
+  private int frameNumber = -1;
+
+  public TransientVertexBuffer(GLX glx, VertexDeclaration.Attribute ... attributes) {
+    glx.assertBgfxThreadAllocation(this);
+    this.glx = glx;
+    this.vertexDeclaration = VertexDeclaration.of(glx, attributes);
+    this.tvb = BGFXTransientVertexBuffer.calloc();
+  }
+
+  /**
+   * Allocates space for the given number of vertices in the current frame. If the
+   * transient pool is exhausted, nothing is allocated and false is returned, in
+   * which case the caller should skip drawing this geometry.
+   *
+   * @param numVertices Number of vertices to allocate
+   * @return <code>true</code> if the vertices were allocated
+   */
+  public boolean allocate(int numVertices) {
+    this.glx.assertBgfxThreadUpdate(this);
+    this.vertexData = null;
+    this.writer = null;
+    this.numVertices = 0;
+    if (numVertices <= 0) {
+      return false;
+    }
+    final int available = bgfx_get_avail_transient_vertex_buffer(numVertices, this.vertexDeclaration.getHandle());
+    if (available < numVertices) {
+      GLX.debug("TransientVertexBuffer could not allocate " + numVertices + " vertices, " + available + " available");
+      return false;
+    }
+    bgfx_alloc_transient_vertex_buffer(this.tvb, numVertices, this.vertexDeclaration.getHandle());
+    this.vertexData = this.tvb.data();
+    this.writer = new VertexWriter(this.vertexData);
+    this.numVertices = numVertices;
+    this.frameNumber = this.glx.bgfx.getFrameNumber();
+    return true;
+  }
+
+  /**
+   * Returns the raw vertex data for the current allocation, positioned at the
+   * start. Only valid until the end of the current frame.
+   *
+   * @return Vertex data buffer
+   */
+  public ByteBuffer getVertexData() {
+    assertAllocated();
+    return this.vertexData;
+  }
+
+  /**
+   * Returns a writer positioned at the start of the current allocation, which is
+   * used by the put methods of this class. Writes made through the writer do not
+   * move the position of getVertexData(), the two should not be mixed.
+   *
+   * @return Vertex writer
+   */
+  public VertexWriter getWriter() {
+    assertAllocated();
+    return this.writer;
+  }
+
+  public int getNumVertices() {
+    return this.numVertices;
+  }
+
+  public VertexDeclaration getVertexDeclaration() {
+    return this.vertexDeclaration;
+  }
+
+  public TransientVertexBuffer putVertex(float x, float y, float z) {
+    getWriter().putVertex(x, y, z);
+    return this;
+  }
+
+  public TransientVertexBuffer putVertex(float x, float y, float z, float nx, float ny, float nz) {
+    getWriter().putVertex(x, y, z, nx, ny, nz);
+    return this;
+  }
+
+  public TransientVertexBuffer putTex2d(float u, float v) {
+    getWriter().putTex2d(u, v);
+    return this;
+  }
+
+  public TransientVertexBuffer putTex3d(float u, float v, float w) {
+    getWriter().putTex3d(u, v, w);
+    return this;
+  }
+
+  private void assertAllocated() {
+    if (this.vertexData == null) {
+      throw new IllegalStateException("TransientVertexBuffer has not been allocated");
+    }
+    if (this.frameNumber != this.glx.bgfx.getFrameNumber()) {
+      throw new IllegalStateException("TransientVertexBuffer was allocated in a previous frame");
+    }
+  }
+
+  @Override
+  public void setVertexBuffer(int stream) {
+    assertAllocated();
+    bgfx_set_transient_vertex_buffer(stream, this.tvb, 0, this.numVertices);
+  }
+
+  @Override
+  public void setVertexBuffer(Encoder encoder, int stream) {
+    assertAllocated();
+    bgfx_encoder_set_transient_vertex_buffer(encoder.getHandle(), stream, this.tvb, 0, this.numVertices);
+  }
+
+  public void dispose() {
+    if (this.glx.bgfxThreadDispose(this)) {
+      this.vertexData = null;
+      this.tvb.free();
+      this.vertexDeclaration.dispose();
+    }
+  }
+}
@@ -22,8 +22,6 @@ import static org.lwjgl.bgfx.BGFX.*;
 
 import java.nio.ByteBuffer;
 
-import org.lwjgl.system.MemoryUtil;
-
 public abstract class VertexBuffer implements BGFXEngine.Resource, BGFXEngine.Buffer.Vertex {
 
   private final GLX glx;
@@ -173,18 +171,18 @@ public abstract class VertexBuffer implements BGFXEngine.Resource, BGFXEngine.Bu
 
   @Deprecated
   public VertexBuffer(GLX glx, int numVertices, int attributes) {
-    this(glx, numVertices, new VertexDeclaration(glx, attributes));
+    this(glx, numVertices, VertexDeclaration.of(glx, VertexDeclaration.attributeMaskToArray(attributes)));
   }
 
   public VertexBuffer(GLX glx, int numVertices, VertexDeclaration.Attribute ... attributes) {
-    this(glx, numVertices, new VertexDeclaration(glx, attributes));
+    this(glx, numVertices, VertexDeclaration.of(glx, attributes));
   }
 
   private VertexBuffer(GLX glx, int numVertices, VertexDeclaration vertexDeclaration) {
     glx.assertBgfxThreadAllocation(this);
     this.glx = glx;
     this.vertexDeclaration = vertexDeclaration;
-    this.vertexData = MemoryUtil.memAlloc(this.vertexDeclaration.getStride() * numVertices);
+    this.vertexData = glx.bgfx.memory.alloc(this.vertexDeclaration.getStride() * numVertices);
     bufferData(this.vertexData);
     this.vertexData.flip();
     this.vbh = bgfx_create_vertex_buffer(bgfx_make_ref(this.vertexData), this.vertexDeclaration.getHandle(), BGFX_BUFFER_NONE);
@@ -192,8 +190,16 @@ public abstract class VertexBuffer implements BGFXEngine.Resource, BGFXEngine.Bu
       throw new BGFXEngine.ResourceException("Could not create VertexBuffer");
     }
     this.numVertices = numVertices;
+    glx.bgfx.resources.register(this, this.vertexData.capacity(), this.vertexData.capacity());
   }
 
+  /**
+   * Writes the vertex data. For large numbers of vertices, wrap the buffer in a
+   * VertexWriter and call finish() when done, which is significantly faster than
+   * relative ByteBuffer puts.
+   *
+   * @param buffer Vertex data, positioned at the start
+   */
   protected abstract void bufferData(ByteBuffer buffer);
 
   protected void putNormal(float nx, float ny, float nz) {
@@ -242,6 +248,124 @@ public abstract class VertexBuffer implements BGFXEngine.Resource, BGFXEngine.Bu
     buffer.putFloat(w);
   }
 
+  protected void putVertexHalf(float x, float y, float z) {
+    putVertexHalf(this.vertexData, x, y, z);
+  }
+
+  /**
+   * Writes a VertexDeclaration.Attribute.POSITION_HALF position
+   *
+   * @param buffer Vertex data
+   * @param x X-coordinate
+   * @param y Y-coordinate
+   * @param z Z-coordinate
+   */
+  public static void putVertexHalf(ByteBuffer buffer, float x, float y, float z) {
+    putHalf(buffer, x, y, z, 1f);
+  }
+
+  protected void putVertexInt16(float x, float y, float z) {
+    putVertexInt16(this.vertexData, x, y, z);
+  }
+
+  /**
+   * Writes a VertexDeclaration.Attribute.POSITION_INT16 position, coordinates
+   * must already be scaled into the range [-1, 1]
+   *
+   * @param buffer Vertex data
+   * @param x Normalized x-coordinate
+   * @param y Normalized y-coordinate
+   * @param z Normalized z-coordinate
+   */
+  public static void putVertexInt16(ByteBuffer buffer, float x, float y, float z) {
+    putInt16(buffer, x, y, z, 1f);
+  }
+
+  protected void putTex2dHalf(float u, float v) {
+    putTex2dHalf(this.vertexData, u, v);
+  }
+
+  public static void putTex2dHalf(ByteBuffer buffer, float u, float v) {
+    buffer.putShort(Float.floatToFloat16(u));
+    buffer.putShort(Float.floatToFloat16(v));
+  }
+
+  protected void putTex2dInt16(float u, float v) {
+    putTex2dInt16(this.vertexData, u, v);
+  }
+
+  public static void putTex2dInt16(ByteBuffer buffer, float u, float v) {
+    buffer.putShort(toInt16(u));
+    buffer.putShort(toInt16(v));
+  }
+
+  protected void putTex3dHalf(float u, float v, float w) {
+    putTex3dHalf(this.vertexData, u, v, w);
+  }
+
+  public static void putTex3dHalf(ByteBuffer buffer, float u, float v, float w) {
+    putHalf(buffer, u, v, w, 0f);
+  }
+
+  protected void putNormalHalf(float nx, float ny, float nz) {
+    putNormalHalf(this.vertexData, nx, ny, nz);
+  }
+
+  public static void putNormalHalf(ByteBuffer buffer, float nx, float ny, float nz) {
+    putHalf(buffer, nx, ny, nz, 0f);
+  }
+
+  protected void putNormalInt16(float nx, float ny, float nz) {
+    putNormalInt16(this.vertexData, nx, ny, nz);
+  }
+
+  public static void putNormalInt16(ByteBuffer buffer, float nx, float ny, float nz) {
+    putInt16(buffer, nx, ny, nz, 0f);
+  }
+
+  protected void putNormalPacked(float nx, float ny, float nz) {
+    putNormalPacked(this.vertexData, nx, ny, nz);
+  }
+
+  /**
+   * Writes a VertexDeclaration.Attribute.NORMAL_PACKED normal, each component
+   * is mapped from [-1, 1] into 10 unsigned bits
+   *
+   * @param buffer Vertex data
+   * @param nx Normal x-component
+   * @param ny Normal y-component
+   * @param nz Normal z-component
+   */
+  public static void putNormalPacked(ByteBuffer buffer, float nx, float ny, float nz) {
+    buffer.putInt(
+      toUnorm10(nx) |
+      (toUnorm10(ny) << 10) |
+      (toUnorm10(nz) << 20)
+    );
+  }
+
+  private static void putHalf(ByteBuffer buffer, float x, float y, float z, float w) {
+    buffer.putShort(Float.floatToFloat16(x));
+    buffer.putShort(Float.floatToFloat16(y));
+    buffer.putShort(Float.floatToFloat16(z));
+    buffer.putShort(Float.floatToFloat16(w));
+  }
+
+  private static void putInt16(ByteBuffer buffer, float x, float y, float z, float w) {
+    buffer.putShort(toInt16(x));
+    buffer.putShort(toInt16(y));
+    buffer.putShort(toInt16(z));
+    buffer.putShort(toInt16(w));
+  }
+
+  static short toInt16(float value) {
+    return (short) Math.round(Math.max(-1f, Math.min(1f, value)) * Short.MAX_VALUE);
+  }
+
+  static int toUnorm10(float value) {
+    return Math.round((Math.max(-1f, Math.min(1f, value)) * .5f + .5f) * 1023);
+  }
+
   public short getHandle() {
     return this.vbh;
   }
@@ -255,11 +379,17 @@ public abstract class VertexBuffer implements BGFXEngine.Resource, BGFXEngine.Bu
     bgfx_set_vertex_buffer(stream, this.vbh, 0, this.numVertices);
   }
 
+  @Override
+  public void setVertexBuffer(Encoder encoder, int stream) {
+    bgfx_encoder_set_vertex_buffer(encoder.getHandle(), stream, this.vbh, 0, this.numVertices);
+  }
+
   public void dispose() {
     if (this.glx.bgfxThreadDispose(this)) {
       bgfx_destroy_vertex_buffer(this.vbh);
-      MemoryUtil.memFree(this.vertexData);
+      this.glx.bgfx.memory.free(this.vertexData);
       this.vertexDeclaration.dispose();
+      this.glx.bgfx.resources.unregister(this);
     }
   }
 }
@@ -21,6 +21,7 @@ package heronarts.glx;
 import static org.lwjgl.bgfx.BGFX.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.lwjgl.bgfx.BGFXVertexLayout;
@@ -36,18 +37,128 @@ public class VertexDeclaration implements BGFXEngine.Resource {
   @Deprecated
   public static int ATTRIB_TEXCOORD0 = 1 << 2;
 
+  /**
+   * Vertex attributes and their encoding. The compact variants are presented to
+   * shaders with the same inputs as their full-float counterparts, with the
+   * exceptions noted. Use the matching VertexBuffer put helpers to write them.
+   */
   public enum Attribute {
-    POSITION,
-    COLOR0,
-    TEXCOORD0,
-    TEXCOORD1,
-    NORMAL;
+    POSITION(BGFX_ATTRIB_POSITION, 3, BGFX_ATTRIB_TYPE_FLOAT, false),
+    COLOR0(BGFX_ATTRIB_COLOR0, 4, BGFX_ATTRIB_TYPE_UINT8, true),
+    TEXCOORD0(BGFX_ATTRIB_TEXCOORD0, 2, BGFX_ATTRIB_TYPE_FLOAT, false),
+    TEXCOORD1(BGFX_ATTRIB_TEXCOORD1, 3, BGFX_ATTRIB_TYPE_FLOAT, false),
+    NORMAL(BGFX_ATTRIB_NORMAL, 3, BGFX_ATTRIB_TYPE_FLOAT, false),
+
+    /**
+     * Position as four half floats (x, y, z, 1), suitable for small coordinate ranges
+     */
+    POSITION_HALF(BGFX_ATTRIB_POSITION, 4, BGFX_ATTRIB_TYPE_HALF, false),
+
+    /**
+     * Position as four normalized int16 values, coordinates must be pre-scaled into
+     * the range [-1, 1] and the scale restored by the model transform
+     */
+    POSITION_INT16(BGFX_ATTRIB_POSITION, 4, BGFX_ATTRIB_TYPE_INT16, true),
+
+    /**
+     * Texture coordinate as two half floats
+     */
+    TEXCOORD0_HALF(BGFX_ATTRIB_TEXCOORD0, 2, BGFX_ATTRIB_TYPE_HALF, false),
+
+    /**
+     * Texture coordinate as two normalized int16 values in the range [-1, 1]
+     */
+    TEXCOORD0_INT16(BGFX_ATTRIB_TEXCOORD0, 2, BGFX_ATTRIB_TYPE_INT16, true),
+
+    /**
+     * Three-component texture coordinate as four half floats (u, v, w, 0)
+     */
+    TEXCOORD1_HALF(BGFX_ATTRIB_TEXCOORD1, 4, BGFX_ATTRIB_TYPE_HALF, false),
+
+    /**
+     * Normal as four half floats (x, y, z, 0)
+     */
+    NORMAL_HALF(BGFX_ATTRIB_NORMAL, 4, BGFX_ATTRIB_TYPE_HALF, false),
+
+    /**
+     * Normal as four normalized int16 values (x, y, z, 0)
+     */
+    NORMAL_INT16(BGFX_ATTRIB_NORMAL, 4, BGFX_ATTRIB_TYPE_INT16, true),
+
+    /**
+     * Normal packed into 10-10-10-2 bits. Unsigned normalized, so shaders receive
+     * components in the range [0, 1] and must decode with n * 2 - 1
+     */
+    NORMAL_PACKED(BGFX_ATTRIB_NORMAL, 4, BGFX_ATTRIB_TYPE_UINT10, true);
+
+    private final int attrib;
+    private final int num;
+    private final int type;
+    private final boolean normalized;
+
+    private Attribute(int attrib, int num, int type, boolean normalized) {
+      this.attrib = attrib;
+      this.num = num;
+      this.type = type;
+      this.normalized = normalized;
+    }
+
+    /**
+     * Number of bytes this attribute occupies in a vertex
+     *
+     * @return Size in bytes
+     */
+    public int getSize() {
+      return switch (this.type) {
+        case BGFX_ATTRIB_TYPE_UINT8 -> this.num;
+        case BGFX_ATTRIB_TYPE_UINT10 -> 4;
+        case BGFX_ATTRIB_TYPE_INT16, BGFX_ATTRIB_TYPE_HALF -> this.num * Short.BYTES;
+        default -> this.num * Float.BYTES;
+      };
+    }
+
+    /**
+     * Whether the renderer supports this attribute encoding. Half float and
+     * 10-10-10-2 attributes are not available on all renderers.
+     *
+     * @param glx GLX instance
+     * @return <code>true</code> if the attribute may be used
+     */
+    public boolean isSupported(GLX glx) {
+      return switch (this.type) {
+        case BGFX_ATTRIB_TYPE_HALF -> glx.bgfx.isSupported(BGFX_CAPS_VERTEX_ATTRIB_HALF);
+        case BGFX_ATTRIB_TYPE_UINT10 -> glx.bgfx.isSupported(BGFX_CAPS_VERTEX_ATTRIB_UINT10);
+        default -> true;
+      };
+    }
   }
 
   private final GLX glx;
   private final BGFXVertexLayout handle;
   private int stride = 0;
 
+  // Shared instances are owned by the interning cache and outlive their users
+  private final boolean shared;
+
+  /**
+   * Returns a shared, immutable declaration for the given attributes. Declarations
+   * are interned per attribute list, so all buffers with the same layout reference
+   * a single BGFXVertexLayout. Calling dispose() on a shared
+   * declaration has no effect, they are freed when the BGFX engine shuts down.
+   * Must be called on the BGFX thread.
+   *
+   * @param glx GLX instance
+   * @param attributes Vertex attributes, in order
+   * @return Shared vertex declaration
+   */
+  public static VertexDeclaration of(GLX glx, Attribute ... attributes) {
+    glx.assertBgfxThread("VertexDeclaration.of() must be called on the BGFX thread");
+    return glx.bgfx.vertexDeclarations.computeIfAbsent(
+      Arrays.asList(attributes.clone()),
+      key -> new VertexDeclaration(glx, true, attributes)
+    );
+  }
+
   static Attribute[] attributeMaskToArray(int attributes) {
     List<Attribute> list = new ArrayList<>();
     if ((attributes & ATTRIB_POSITION) > 0) {
@@ -67,8 +178,13 @@ public class VertexDeclaration implements BGFXEngine.Resource {
   }
 
   public VertexDeclaration(GLX glx, Attribute ... attributes) {
+    this(glx, false, attributes);
+  }
+
+  private VertexDeclaration(GLX glx, boolean shared, Attribute ... attributes) {
     glx.assertBgfxThreadAllocation(this);
     this.glx = glx;
+    this.shared = shared;
     this.handle = BGFXVertexLayout.calloc();
     bgfx_vertex_layout_begin(this.handle, glx.bgfx.getRenderer());
     for (Attribute attribute : attributes) {
@@ -78,31 +194,11 @@ public class VertexDeclaration implements BGFXEngine.Resource {
   }
 
   private void addLayout(Attribute attribute) {
-    switch (attribute) {
-      case POSITION -> {
-        bgfx_vertex_layout_add(this.handle, BGFX_ATTRIB_POSITION, 3, BGFX_ATTRIB_TYPE_FLOAT, false, false);
-        this.stride += 3 * Float.BYTES;
-      }
-      case COLOR0 -> {
-        bgfx_vertex_layout_add(this.handle, BGFX_ATTRIB_COLOR0, 4, BGFX_ATTRIB_TYPE_UINT8, true, false);
-        this.stride += 4;
-      }
-      case NORMAL -> {
-        bgfx_vertex_layout_add(this.handle, BGFX_ATTRIB_NORMAL, 3, BGFX_ATTRIB_TYPE_FLOAT, false, false);
-        this.stride += 3 * Float.BYTES;
-      }
-      case TEXCOORD0 -> {
-        bgfx_vertex_layout_add(this.handle, BGFX_ATTRIB_TEXCOORD0, 2, BGFX_ATTRIB_TYPE_FLOAT, false, false);
-        this.stride += 2 * Float.BYTES;
-      }
-      case TEXCOORD1 -> {
-        bgfx_vertex_layout_add(this.handle, BGFX_ATTRIB_TEXCOORD1, 3, BGFX_ATTRIB_TYPE_FLOAT, false, false);
-        this.stride += 3 * Float.BYTES;
-      }
-      default -> {
-        throw new IllegalArgumentException("Unknown VertexDeclaration.Attribute type: " + attribute);
-      }
+    if (!attribute.isSupported(this.glx)) {
+      throw new BGFXEngine.ResourceException("VertexDeclaration.Attribute not supported by renderer: " + attribute);
     }
+    bgfx_vertex_layout_add(this.handle, attribute.attrib, attribute.num, attribute.type, attribute.normalized, false);
+    this.stride += attribute.getSize();
   }
 
   public BGFXVertexLayout getHandle() {
@@ -113,10 +209,24 @@ public class VertexDeclaration implements BGFXEngine.Resource {
     return this.stride;
   }
 
+  public boolean isShared() {
+    return this.shared;
+  }
+
   public void dispose() {
+    if (this.shared) {
+      return;
+    }
     if (this.glx.bgfxThreadDispose(this)) {
       this.handle.free();
     }
   }
 
+  /**
+   * Frees a shared declaration, called by the BGFX engine on shutdown
+   */
+  void disposeShared() {
+    this.handle.free();
+  }
+
 }
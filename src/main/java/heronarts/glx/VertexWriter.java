@@ -0,0 +1,271 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.glx;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Writes vertex data directly to the native memory of a direct ByteBuffer using a
+ * moving address, avoiding the per-value position and bounds bookkeeping of
+ * ByteBuffer.putFloat(). Each put call performs a single bounds check against the
+ * limit of the buffer. The position of the buffer itself is only updated when
+ * finish() is called.
+ *
+ * The encodings match the static put helpers on VertexBuffer, values are written
+ * in native byte order.
+ */
+public class VertexWriter {
+
+  private final ByteBuffer buffer;
+  private final long base;
+  private final long limit;
+  private long address;
+
+  /**
+   * Creates a writer that starts at the current position of the buffer and may
+   * write up to its limit
+   *
+   * @param buffer Direct buffer of vertex data
+   */
+  public VertexWriter(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.base = MemoryUtil.memAddress0(buffer);
+    this.address = this.base + buffer.position();
+    this.limit = this.base + buffer.limit();
+  }
+
+  private long reserve(long bytes) {
+    final long address = this.address;
+    if (address + bytes > this.limit) {
+      throw new BufferOverflowException();
+    }
+    this.address = address + bytes;
+    return address;
+  }
+
+  /**
+   * Byte offset of the next write, relative to the start of the buffer
+   *
+   * @return Write position in bytes
+   */
+  public int position() {
+    return (int) (this.address - this.base);
+  }
+
+  /**
+   * Number of bytes that may still be written
+   *
+   * @return Remaining bytes
+   */
+  public int remaining() {
+    return (int) (this.limit - this.address);
+  }
+
+  /**
+   * Sets the position of the underlying buffer to the end of the data written
+   *
+   * @return The underlying buffer
+   */
+  public ByteBuffer finish() {
+    return this.buffer.position(position());
+  }
+
+  public VertexWriter putFloat(float f) {
+    MemoryUtil.memPutFloat(reserve(4), f);
+    return this;
+  }
+
+  public VertexWriter putInt(int i) {
+    MemoryUtil.memPutInt(reserve(4), i);
+    return this;
+  }
+
+  public VertexWriter putShort(short s) {
+    MemoryUtil.memPutShort(reserve(2), s);
+    return this;
+  }
+
+  /**
+   * Writes a VertexDeclaration.Attribute.COLOR0 color
+   *
+   * @param argb Color in ARGB format
+   * @return this
+   */
+  public VertexWriter putColor(int argb) {
+    return putInt(argb);
+  }
+
+  public VertexWriter putVertex(float x, float y, float z) {
+    final long address = reserve(12);
+    MemoryUtil.memPutFloat(address, x);
+    MemoryUtil.memPutFloat(address + 4, y);
+    MemoryUtil.memPutFloat(address + 8, z);
+    return this;
+  }
+
+  public VertexWriter putVertex(float x, float y, float z, float nx, float ny, float nz) {
+    final long address = reserve(24);
+    MemoryUtil.memPutFloat(address, x);
+    MemoryUtil.memPutFloat(address + 4, y);
+    MemoryUtil.memPutFloat(address + 8, z);
+    MemoryUtil.memPutFloat(address + 12, nx);
+    MemoryUtil.memPutFloat(address + 16, ny);
+    MemoryUtil.memPutFloat(address + 20, nz);
+    return this;
+  }
+
+  public VertexWriter putNormal(float nx, float ny, float nz) {
+    return putVertex(nx, ny, nz);
+  }
+
+  public VertexWriter putTex2d(float u, float v) {
+    final long address = reserve(8);
+    MemoryUtil.memPutFloat(address, u);
+    MemoryUtil.memPutFloat(address + 4, v);
+    return this;
+  }
+
+  public VertexWriter putTex3d(float u, float v, float w) {
+    return putVertex(u, v, w);
+  }
+
+  public VertexWriter putVertexHalf(float x, float y, float z) {
+    return putHalf(x, y, z, 1f);
+  }
+
+  public VertexWriter putVertexInt16(float x, float y, float z) {
+    return putInt16(x, y, z, 1f);
+  }
+
+  public VertexWriter putTex2dHalf(float u, float v) {
+    final long address = reserve(4);
+    MemoryUtil.memPutShort(address, Float.floatToFloat16(u));
+    MemoryUtil.memPutShort(address + 2, Float.floatToFloat16(v));
+    return this;
+  }
+
+  public VertexWriter putTex2dInt16(float u, float v) {
+    final long address = reserve(4);
+    MemoryUtil.memPutShort(address, VertexBuffer.toInt16(u));
+    MemoryUtil.memPutShort(address + 2, VertexBuffer.toInt16(v));
+    return this;
+  }
+
+  public VertexWriter putTex3dHalf(float u, float v, float w) {
+    return putHalf(u, v, w, 0f);
+  }
+
+  public VertexWriter putNormalHalf(float nx, float ny, float nz) {
+    return putHalf(nx, ny, nz, 0f);
+  }
+
+  public VertexWriter putNormalInt16(float nx, float ny, float nz) {
+    return putInt16(nx, ny, nz, 0f);
+  }
+
+  public VertexWriter putNormalPacked(float nx, float ny, float nz) {
+    return putInt(
+      VertexBuffer.toUnorm10(nx) |
+      (VertexBuffer.toUnorm10(ny) << 10) |
+      (VertexBuffer.toUnorm10(nz) << 20)
+    );
+  }
+
+  private VertexWriter putHalf(float x, float y, float z, float w) {
+    final long address = reserve(8);
+    MemoryUtil.memPutShort(address, Float.floatToFloat16(x));
+    MemoryUtil.memPutShort(address + 2, Float.floatToFloat16(y));
+    MemoryUtil.memPutShort(address + 4, Float.floatToFloat16(z));
+    MemoryUtil.memPutShort(address + 6, Float.floatToFloat16(w));
+    return this;
+  }
+
+  private VertexWriter putInt16(float x, float y, float z, float w) {
+    final long address = reserve(8);
+    MemoryUtil.memPutShort(address, VertexBuffer.toInt16(x));
+    MemoryUtil.memPutShort(address + 2, VertexBuffer.toInt16(y));
+    MemoryUtil.memPutShort(address + 4, VertexBuffer.toInt16(z));
+    MemoryUtil.memPutShort(address + 6, VertexBuffer.toInt16(w));
+    return this;
+  }
+
+  /**
+   * Copies an array of floats, e.g. pre-interleaved vertex data
+   *
+   * @param src Source array
+   * @return this
+   */
+  public VertexWriter put(float[] src) {
+    return put(src, 0, src.length);
+  }
+
+  /**
+   * Copies a span of an array of floats
+   *
+   * @param src Source array
+   * @param offset Index of first float to copy
+   * @param length Number of floats to copy
+   * @return this
+   */
+  public VertexWriter put(float[] src, int offset, int length) {
+    MemoryUtil.memFloatBuffer(reserve(4L * length), length).put(src, offset, length);
+    return this;
+  }
+
+  /**
+   * Copies the remaining floats of a buffer, whose position is advanced to its limit
+   *
+   * @param src Source buffer
+   * @return this
+   */
+  public VertexWriter put(FloatBuffer src) {
+    final int length = src.remaining();
+    final long address = reserve(4L * length);
+    if (src.isDirect()) {
+      MemoryUtil.memCopy(MemoryUtil.memAddress(src), address, 4L * length);
+      src.position(src.limit());
+    } else {
+      MemoryUtil.memFloatBuffer(address, length).put(src);
+    }
+    return this;
+  }
+
+  /**
+   * Copies the remaining bytes of a buffer, whose position is advanced to its limit
+   *
+   * @param src Source buffer
+   * @return this
+   */
+  public VertexWriter put(ByteBuffer src) {
+    final int length = src.remaining();
+    final long address = reserve(length);
+    if (src.isDirect()) {
+      MemoryUtil.memCopy(MemoryUtil.memAddress(src), address, length);
+      src.position(src.limit());
+    } else {
+      MemoryUtil.memByteBuffer(address, length).put(src);
+    }
+    return this;
+  }
+
+}
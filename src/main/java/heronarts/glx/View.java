@@ -121,6 +121,11 @@ public class View {
     return this;
   }
 
+  public View touch(Encoder encoder) {
+    bgfx_encoder_touch(encoder.getHandle(), this.viewId);
+    return this;
+  }
+
   public int getWidth() {
     return this.width;
   }
@@ -20,6 +20,8 @@ package heronarts.glx.shader;
 
 import org.joml.Vector3f;
 
+import heronarts.glx.BGFXEngine;
+import heronarts.glx.Encoder;
 import heronarts.glx.GLX;
 import heronarts.glx.View;
 import heronarts.lx.color.LXColor;
@@ -40,7 +42,7 @@ public class Phong extends ShaderProgram {
   private float[] eyePosition = new float[4];
 
   public Phong(GLX glx) {
-    super(glx, "vs_phong", "fs_phong");
+    super(glx, "vs_phong", "fs_phong", true);
 
     this.uniformLightColor = new Uniform.Vec4f(glx, "u_lightColor");
     setLightColor(0xffffffff);
@@ -75,12 +77,17 @@ public class Phong extends ShaderProgram {
   }
 
   public void setLightDirection(float x, float y, float z) {
+    normalize(this.lightDirection, x, y, z);
+  }
+
+  private static float[] normalize(float[] dest, float x, float y, float z) {
     final float mag = (float) Math.sqrt(x*x + y*y + z*z);
     final float invMag = (mag == 0) ? 1 : mag;
 
-    this.lightDirection[0] = x / invMag;
-    this.lightDirection[1] = y / invMag;
-    this.lightDirection[2] = z / invMag;
+    dest[0] = x / invMag;
+    dest[1] = y / invMag;
+    dest[2] = z / invMag;
+    return dest;
   }
 
   public void setLighting(LXModel.Mesh.Lighting lighting) {
@@ -104,13 +111,38 @@ public class Phong extends ShaderProgram {
     this.eyePosition[2] = z;
   }
 
+  /**
+   * Submits a mesh with its lighting parameters set directly on the encoder,
+   * leaving the state of this program unchanged. May be called from multiple
+   * thread encoders concurrently.
+   *
+   * @param encoder Encoder to record the draw call
+   * @param view View to submit to
+   * @param state BGFX state flags
+   * @param eye Eye position
+   * @param mesh Mesh with light color, direction and lighting parameters
+   * @param objectColorARGB Object color, ARGB
+   * @param buffers Vertex and index buffers
+   * @return this
+   */
+  public Phong submit(Encoder encoder, View view, long state, Vector3f eye, LXModel.Mesh mesh, int objectColorARGB, BGFXEngine.Buffer ... buffers) {
+    final LXModel.Mesh.Lighting lighting = mesh.lighting;
+    this.uniformLightColor.setARGB(encoder, mesh.lightColor);
+    this.uniformLightDirection.set(encoder, normalize(new float[3], mesh.lightDirection.x, mesh.lightDirection.y, mesh.lightDirection.z));
+    this.uniformLighting.set(encoder, lighting.ambient, lighting.diffuse, lighting.specular, lighting.shininess);
+    this.uniformEyePosition.set(encoder, eye.x, eye.y, eye.z);
+    this.uniformObjectColor.setARGB(encoder, objectColorARGB);
+    submitDraw(encoder, view, state, buffers);
+    return this;
+  }
+
   @Override
-  protected void setUniforms(View view) {
-    this.uniformLightColor.setARGB(this.lightColorARGB);
-    this.uniformLightDirection.set(this.lightDirection);
-    this.uniformLighting.set(this.lighting);
-    this.uniformEyePosition.set(this.eyePosition);
-    this.uniformObjectColor.setARGB(this.objectColorARGB);
+  protected void setUniforms(Encoder encoder, View view) {
+    this.uniformLightColor.setARGB(encoder, this.lightColorARGB);
+    this.uniformLightDirection.set(encoder, this.lightDirection);
+    this.uniformLighting.set(encoder, this.lighting);
+    this.uniformEyePosition.set(encoder, this.eyePosition);
+    this.uniformObjectColor.setARGB(encoder, this.objectColorARGB);
   }
 
   @Override
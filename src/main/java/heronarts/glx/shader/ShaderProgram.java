@@ -24,9 +24,11 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 
+import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 
 import heronarts.glx.BGFXEngine;
+import heronarts.glx.Encoder;
 import heronarts.glx.GLX;
 import heronarts.glx.GLXUtils;
 import heronarts.glx.Texture;
@@ -78,6 +80,14 @@ public class ShaderProgram implements BGFXEngine.Resource {
         this.glx.assertBgfxThreadUpdate(this);
         bgfx_set_texture(stage, this.handle, textureHandle, textureFlags);
       }
+
+      public void setTexture(Encoder encoder, int stage, Texture texture, int textureFlags) {
+        setTexture(encoder, stage, texture.getHandle(), textureFlags);
+      }
+
+      public void setTexture(Encoder encoder, int stage, short textureHandle, int textureFlags) {
+        bgfx_encoder_set_texture(encoder.getHandle(), stage, this.handle, textureHandle, textureFlags);
+      }
     }
 
     public static class Vec4f extends Uniform {
@@ -92,8 +102,13 @@ public class ShaderProgram implements BGFXEngine.Resource {
       }
 
       public void setARGB(int argb) {
+        setARGB(this.glx.bgfx.encoder, argb);
+      }
+
+      public void setARGB(Encoder encoder, int argb) {
         // Uniform buffers are in RGBA order, floating point
         set(
+          encoder,
           ((argb >>> 16) & 0xff) / 255f,
           ((argb >>> 8) & 0xff) / 255f,
           (argb & 0xff) / 255f,
@@ -102,19 +117,41 @@ public class ShaderProgram implements BGFXEngine.Resource {
       }
 
       public void set(float... values) {
-        this.glx.assertBgfxThreadUpdate(this);
+        set(this.glx.bgfx.encoder, values);
+      }
+
+      /**
+       * Sets the uniform value on the given encoder. May be called from the thread
+       * which owns the encoder.
+       *
+       * @param encoder Encoder
+       * @param values Up to 4 values, missing values are 0
+       */
+      public void set(Encoder encoder, float... values) {
         if (values.length > LENGTH) {
           throw new IllegalArgumentException(
             "Cannot pass more than " + LENGTH + " values to Uniform.Vec4f.set()");
         }
+        if (encoder.isThreadEncoder()) {
+          // Thread encoders may not share our buffer, the value is copied by bgfx
+          try (MemoryStack stack = MemoryStack.stackPush()) {
+            bgfx_encoder_set_uniform(encoder.getHandle(), this.handle, put(stack.mallocFloat(LENGTH), values), 1);
+          }
+        } else {
+          this.glx.assertBgfxThreadUpdate(this);
+          bgfx_encoder_set_uniform(encoder.getHandle(), this.handle, put(this.buffer, values), 1);
+        }
+      }
+
+      private static FloatBuffer put(FloatBuffer buffer, float... values) {
         int i = 0;
         for (float f : values) {
-          this.buffer.put(i++, f);
+          buffer.put(i++, f);
         }
         while (i < LENGTH) {
-          this.buffer.put(i++, 0);
+          buffer.put(i++, 0);
         }
-        bgfx_set_uniform(this.handle, this.buffer, 1);
+        return buffer;
       }
 
       @Override
@@ -138,9 +175,28 @@ public class ShaderProgram implements BGFXEngine.Resource {
   private ByteBuffer fragmentShaderCode;
   protected long bgfxState = DEFAULT_BGFX_STATE;
 
+  // Whether the subclass sets all of its state on the submitting encoder
+  private final boolean threadSafe;
+
   public ShaderProgram(GLX glx, String vsName, String fsName) {
+    this(glx, vsName, fsName, false);
+  }
+
+  /**
+   * Constructs a shader program. A thread-safe program sets all of its uniforms in
+   * setUniforms(Encoder, View) and does not use setUniforms(View) or
+   * setVertexBuffers(View), which go through the global bgfx API. Only thread-safe
+   * programs may be submitted from thread encoders.
+   *
+   * @param glx GLX instance
+   * @param vsName Vertex shader name
+   * @param fsName Fragment shader name
+   * @param threadSafe Whether the program may be submitted from thread encoders
+   */
+  protected ShaderProgram(GLX glx, String vsName, String fsName, boolean threadSafe) {
     glx.assertBgfxThreadAllocation(this);
     this.glx = glx;
+    this.threadSafe = threadSafe;
     try {
       this.vertexShaderCode = GLXUtils.loadShader(glx, vsName);
       this.fragmentShaderCode = GLXUtils.loadShader(glx, fsName);
@@ -152,6 +208,22 @@ public class ShaderProgram implements BGFXEngine.Resource {
       bgfx_create_shader(bgfx_make_ref(this.fragmentShaderCode)),
       true
     );
+    glx.bgfx.resources.register(this, this.vertexShaderCode.capacity() + this.fragmentShaderCode.capacity(), 0);
+  }
+
+  /**
+   * Whether this program may be submitted from a thread encoder
+   *
+   * @return <code>true</code> if all program state is set on the submitting encoder
+   */
+  public boolean isThreadSafe() {
+    return this.threadSafe;
+  }
+
+  private void assertEncoder(Encoder encoder) {
+    if (encoder.isThreadEncoder() && !this.threadSafe) {
+      throw new IllegalStateException(getClass().getName() + " is not thread-safe and may not be submitted from a thread encoder");
+    }
   }
 
   public void submit(View view) {
@@ -171,8 +243,47 @@ public class ShaderProgram implements BGFXEngine.Resource {
   }
 
   public void submit(View view, long bgfxState, BGFXEngine.Buffer ... buffers) {
-    bgfx_set_state(bgfxState, 0);
-    setUniforms(view);
+    submit(this.glx.bgfx.encoder, view, bgfxState, buffers);
+  }
+
+  public void submit(Encoder encoder, View view) {
+    submit(encoder, view, this.bgfxState);
+  }
+
+  public void submit(Encoder encoder, View view, long bgfxState) {
+    submit(encoder, view, bgfxState, (BGFXEngine.Buffer[]) null);
+  }
+
+  /**
+   * Submits this program with the given encoder, which may be the BGFX thread's
+   * main encoder or a thread encoder.
+   *
+   * @param encoder Encoder to record the draw call
+   * @param view View to submit to
+   * @param bgfxState BGFX state flags
+   * @param buffers Vertex and index buffers
+   * @throws IllegalStateException If a thread encoder is used with a program that
+   *   is not thread-safe
+   */
+  public void submit(Encoder encoder, View view, long bgfxState, BGFXEngine.Buffer ... buffers) {
+    assertEncoder(encoder);
+    setUniforms(encoder, view);
+    submitDraw(encoder, view, bgfxState, buffers);
+  }
+
+  /**
+   * Records the draw call for this program without setting its uniforms. Used by
+   * subclasses that have already set per-draw uniform values on the encoder, so
+   * that they need not be held in shared program state.
+   *
+   * @param encoder Encoder to record the draw call
+   * @param view View to submit to
+   * @param bgfxState BGFX state flags
+   * @param buffers Vertex and index buffers
+   */
+  protected void submitDraw(Encoder encoder, View view, long bgfxState, BGFXEngine.Buffer ... buffers) {
+    assertEncoder(encoder);
+    encoder.setState(bgfxState);
     if (buffers != null) {
       int vertexStream = 0;
       for (BGFXEngine.Buffer buffer : buffers) {
@@ -180,15 +291,17 @@ public class ShaderProgram implements BGFXEngine.Resource {
           GLX.error(new Exception("A null vertexBuffer was passed to ShaderProgram.submit"));
         } else {
           switch (buffer) {
-          case BGFXEngine.Buffer.Vertex vertexBuffer -> vertexBuffer.setVertexBuffer(vertexStream++);
-          case BGFXEngine.Buffer.Index indexBuffer -> indexBuffer.setIndexBuffer();
+          case BGFXEngine.Buffer.Vertex vertexBuffer -> vertexBuffer.setVertexBuffer(encoder, vertexStream++);
+          case BGFXEngine.Buffer.Index indexBuffer -> indexBuffer.setIndexBuffer(encoder);
           default -> throw new IllegalArgumentException("Invalid buffer type passed to ShaderProgram.submit(): " + buffer.getClass().getName());
           }
         }
       }
     }
-    setVertexBuffers(view);
-    bgfx_submit(view.getId(), this.handle, 0, BGFX_DISCARD_ALL);
+    if (!this.threadSafe) {
+      setVertexBuffers(view);
+    }
+    bgfx_encoder_submit(encoder.getHandle(), view.getId(), this.handle, 0, BGFX_DISCARD_ALL);
   }
 
   @Deprecated
@@ -200,11 +313,26 @@ public class ShaderProgram implements BGFXEngine.Resource {
     // Subclasses override to set textures and uniforms
   }
 
+  /**
+   * Sets textures and uniforms on the encoder which is submitting this program.
+   * Thread-safe subclasses override this, the default implementation falls back
+   * to setUniforms(View) for programs which are not thread-safe.
+   *
+   * @param encoder Encoder the program is being submitted with
+   * @param view View the program is being submitted to
+   */
+  protected void setUniforms(Encoder encoder, View view) {
+    if (!this.threadSafe) {
+      setUniforms(view);
+    }
+  }
+
   public void dispose() {
     if (this.glx.bgfxThreadDispose(this)) {
       bgfx_destroy_program(this.handle);
       MemoryUtil.memFree(this.vertexShaderCode);
       MemoryUtil.memFree(this.fragmentShaderCode);
+      this.glx.bgfx.resources.unregister(this);
     }
   }
 }
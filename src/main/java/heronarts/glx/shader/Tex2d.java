@@ -109,6 +109,10 @@ public class Tex2d implements BGFXEngine.Resource {
     } catch (IOException iox) {
       throw new RuntimeException(iox);
     }
+    glx.bgfx.resources.register(this,
+      this.vertexBuffer.capacity() + this.vsCode.capacity() + this.fsCode.capacity() + this.modelMatrixBuf.capacity() * Float.BYTES,
+      this.vertexBuffer.capacity()
+    );
   }
 
   private static final long DEFAULT_BGFX_STATE = 0
@@ -154,6 +158,7 @@ public class Tex2d implements BGFXEngine.Resource {
       MemoryUtil.memFree(this.modelMatrixBuf);
       this.uniformTexture.dispose();
       bgfx_destroy_program(this.program);
+      this.glx.bgfx.resources.unregister(this);
     }
   }
 
@@ -28,10 +28,14 @@ import java.util.Objects;
 import org.joml.Vector3f;
 import static org.lwjgl.bgfx.BGFX.*;
 
+import heronarts.glx.BGFXEngine;
+import heronarts.glx.Encoder;
 import heronarts.glx.GLX;
 import heronarts.glx.GLXUtils;
 import heronarts.glx.Texture;
+import heronarts.glx.TransientVertexBuffer;
 import heronarts.glx.VertexDeclaration;
+import heronarts.glx.VertexWriter;
 import heronarts.glx.View;
 import heronarts.glx.ui.UI;
 import heronarts.lx.color.LXColor;
@@ -119,10 +123,15 @@ public class Text3d extends ShaderProgram {
     private int backgroundColorARGB = LXColor.CLEAR;
     private HorizontalAlignment horizontalAlignment = HorizontalAlignment.LEFT;
     private VerticalAlignment verticalAlignment = VerticalAlignment.BOTTOM;
-    private VertexBuffer vertexBuffer = null;
+    private char[] chars = null;
+    private float width = 0;
     private boolean depthTest = true;
     private boolean dirty = false;
 
+    // Static copy of the glyph quads, built once the label text stops changing
+    private VertexBuffer vertexBuffer = null;
+    private int unchangedFrames = 0;
+
     private Label(String label) {
       this.label = label;
     }
@@ -224,6 +233,21 @@ public class Text3d extends ShaderProgram {
       return this;
     }
 
+    /**
+     * Width of the label text as of its last draw, in multiples of the text size
+     *
+     * @return Label width
+     */
+    public float getWidth() {
+      return this.width;
+    }
+
+    /**
+     * Static vertex buffer holding a label's glyph quads
+     *
+     * @deprecated Labels are not always drawn from a static buffer, use Label.getWidth()
+     */
+    @Deprecated
     public abstract class VertexBuffer extends heronarts.glx.VertexBuffer {
       protected float width;
 
@@ -236,62 +260,106 @@ public class Text3d extends ShaderProgram {
       }
     }
 
-    private void _initVertexBuffer(UI ui) {
-      if (this.dirty) {
-        if (this.vertexBuffer != null) {
-          this.vertexBuffer.dispose();
-          this.vertexBuffer = null;
+    private boolean _layout() {
+      if (!this.dirty && (this.chars != null)) {
+        return false;
+      }
+      this.chars = this.label.toCharArray();
+      final FontTexture font = getFontTexture(this.textFont);
+      float x = 0;
+      for (int i = 0; i < this.chars.length; ++i) {
+        if (!LXUtils.inRange(this.chars[i], MIN_CHAR, MAX_CHAR)) {
+          GLX.error("Invalid character codepoint in UI3dLabels.Label: " + (int) this.chars[i]);
+          this.chars[i] = ' ';
         }
-        this.dirty = false;
+        x += font.glyphMetrics[this.chars[i] - MIN_CHAR].width / font.atlasHeight;
       }
+      this.width = x;
+      this.dirty = false;
+      return true;
+    }
 
+    /**
+     * Gets the buffer holding this label's glyph quads. Labels whose text has been
+     * unchanged for a few frames are drawn from a static vertex buffer, otherwise
+     * the quads are written into the transient pool each frame. If the transient
+     * pool is exhausted the static buffer is built immediately.
+     *
+     * @return Vertex buffer, or null if there is nothing to draw
+     */
+    private BGFXEngine.Buffer.Vertex _getVertexBuffer() {
+      if (_layout()) {
+        _disposeVertexBuffer();
+        this.unchangedFrames = 0;
+      } else if (this.unchangedFrames < STATIC_BUFFER_FRAMES) {
+        ++this.unchangedFrames;
+      }
+      if (this.chars.length == 0) {
+        return null;
+      }
+      if ((this.vertexBuffer == null) && (this.unchangedFrames >= STATIC_BUFFER_FRAMES)) {
+        _initVertexBuffer();
+      }
       if (this.vertexBuffer != null) {
-        return;
+        return this.vertexBuffer;
       }
-      final char[] chars = this.label.toCharArray();
-      final FontTexture font = getFontTexture(this.textFont);
+      final TransientVertexBuffer buffer = Text3d.this.labelBuffer;
+      if (buffer.allocate(this.chars.length * 6)) {
+        _putVertices(buffer.getWriter());
+        return buffer;
+      }
+      Text3d.this.warnTransientExhausted();
+      _initVertexBuffer();
+      return this.vertexBuffer;
+    }
+
+    private void _initVertexBuffer() {
+      final char[] chars = this.chars;
+      final float labelWidth = this.width;
       this.vertexBuffer = new VertexBuffer(chars) {
         @Override
         protected void bufferData(ByteBuffer buffer) {
-          float x = 0;
-
-          for (char ch : chars) {
-            if (!LXUtils.inRange(ch, MIN_CHAR, MAX_CHAR)) {
-              GLX.error("Invalid character codepoint in UI3dLabels.Label: " + (int) ch);
-              ch = ' ';
-            }
-            final FontTexture.GlyphMetrics metrics = font.glyphMetrics[ch - MIN_CHAR];
-            final float tx0 = metrics.x / font.atlasWidth;
-            final float tx1 = tx0 + metrics.width / font.atlasWidth;
-            final float ty0 = 1 - metrics.y / font.atlasHeight;
-            final float ty1 = ty0 - metrics.height / font.atlasHeight;
-
-            final float charWidth = metrics.width / font.atlasHeight;
-            final float charHeight = metrics.height / font.atlasHeight;
-
-            putVertex(x, 0, 0);
-            putTex2d(tx0, ty0);
-
-            putVertex(x + charWidth, 0, 0);
-            putTex2d(tx1, ty0);
-
-            putVertex(x, charHeight, 0);
-            putTex2d(tx0, ty1);
-
-            putVertex(x, charHeight, 0);
-            putTex2d(tx0, ty1);
+          final VertexWriter writer = new VertexWriter(buffer);
+          _putVertices(writer, chars);
+          writer.finish();
+          this.width = labelWidth;
+        }
+      };
+    }
 
-            putVertex(x + charWidth, 0, 0);
-            putTex2d(tx1, ty0);
+    private void _disposeVertexBuffer() {
+      if (this.vertexBuffer != null) {
+        this.vertexBuffer.dispose();
+        this.vertexBuffer = null;
+      }
+    }
 
-            putVertex(x + charWidth, 0 + charHeight, 0);
-            putTex2d(tx1, ty1);
+    private void _putVertices(VertexWriter writer) {
+      _putVertices(writer, this.chars);
+    }
 
-            x += charWidth;
-          }
-          this.width = x;
-        }
-      };
+    private void _putVertices(VertexWriter writer, char[] chars) {
+      final FontTexture font = getFontTexture(this.textFont);
+      float x = 0;
+      for (char ch : chars) {
+        final FontTexture.GlyphMetrics metrics = font.glyphMetrics[ch - MIN_CHAR];
+        final float tx0 = metrics.x / font.atlasWidth;
+        final float tx1 = tx0 + metrics.width / font.atlasWidth;
+        final float ty0 = 1 - metrics.y / font.atlasHeight;
+        final float ty1 = ty0 - metrics.height / font.atlasHeight;
+
+        final float charWidth = metrics.width / font.atlasHeight;
+        final float charHeight = metrics.height / font.atlasHeight;
+
+        writer.putVertex(x, 0, 0).putTex2d(tx0, ty0);
+        writer.putVertex(x + charWidth, 0, 0).putTex2d(tx1, ty0);
+        writer.putVertex(x, charHeight, 0).putTex2d(tx0, ty1);
+        writer.putVertex(x, charHeight, 0).putTex2d(tx0, ty1);
+        writer.putVertex(x + charWidth, 0, 0).putTex2d(tx1, ty0);
+        writer.putVertex(x + charWidth, 0 + charHeight, 0).putTex2d(tx1, ty1);
+
+        x += charWidth;
+      }
     }
 
     private final static long TEXT_BGFX_STATE = 0
@@ -303,19 +371,21 @@ public class Text3d extends ShaderProgram {
 
     public void draw(UI ui, View view) {
       if (this.visible) {
-        _initVertexBuffer(ui);
+        final BGFXEngine.Buffer.Vertex buffer = _getVertexBuffer();
+        if (buffer == null) {
+          return;
+        }
         long state = TEXT_BGFX_STATE;
         if (this.depthTest) {
           state |= BGFX_STATE_DEPTH_TEST_LESS;
         }
-        Text3d.this.setLabel(this).submit(view, state, this.vertexBuffer);
+        Text3d.this.setLabel(this).submit(view, state, buffer);
       }
     }
 
     public void dispose() {
-      if (this.vertexBuffer != null) {
-        this.vertexBuffer.dispose();
-      }
+      _disposeVertexBuffer();
+      this.chars = null;
     }
   }
 
@@ -398,6 +468,15 @@ public class Text3d extends ShaderProgram {
 
   private final FontTexture[] fontTextures = new FontTexture[TextFont.values().length];
 
+  // Number of frames a label's text must be unchanged before it gets a static buffer
+  private static final int STATIC_BUFFER_FRAMES = 2;
+
+  // Shared by all labels, re-allocated from the transient pool for each draw
+  private final TransientVertexBuffer labelBuffer;
+
+  // Frame in which the transient pool was last found to be exhausted
+  private int transientExhaustedFrame = -2;
+
   private int textColorARGB = LXColor.WHITE;
   private int backgroundColorARGB = LXColor.CLEAR;
   private final Vector3f textPosition = new Vector3f();
@@ -409,7 +488,7 @@ public class Text3d extends ShaderProgram {
   private TextFont textFont = TextFont.NORMAL;
 
   public Text3d(GLX glx) {
-    super(glx, "vs_text3d", "fs_text3d");
+    super(glx, "vs_text3d", "fs_text3d", true);
 
     int fi = 0;
     for (TextFont textFont : TextFont.values()) {
@@ -423,6 +502,17 @@ public class Text3d extends ShaderProgram {
     this.uniformTextMetrics = new Uniform.Vec4f(glx, "u_textMetrics");
     this.uniformBackgroundColor = new Uniform.Vec4f(glx, "u_backgroundColor");
 
+    this.labelBuffer = new TransientVertexBuffer(glx, VertexDeclaration.Attribute.POSITION, VertexDeclaration.Attribute.TEXCOORD0);
+
+  }
+
+  private void warnTransientExhausted() {
+    // Warn only at the start of a run of frames with the pool exhausted
+    final int frameNumber = this.glx.bgfx.getFrameNumber();
+    if ((frameNumber != this.transientExhaustedFrame) && (frameNumber != this.transientExhaustedFrame + 1)) {
+      GLX.warning("Transient vertex pool exhausted, Text3d labels are using static vertex buffers");
+    }
+    this.transientExhaustedFrame = frameNumber;
   }
 
   public Label createLabel(String text) {
@@ -492,7 +582,7 @@ public class Text3d extends ShaderProgram {
     setTextPosition(label.textPosition);
     setTextFont(label.textFont);
     setTextOffset(
-      label.horizontalAlignment.offset * label.vertexBuffer.getWidth(),
+      label.horizontalAlignment.offset * label.width,
       label.verticalAlignment.getOffset(getFontTexture(label.textFont))
     );
     setTextSize(label.textSize);
@@ -507,13 +597,13 @@ public class Text3d extends ShaderProgram {
   }
 
   @Override
-  protected void setUniforms(View view) {
-    this.uniformFontSampler.setTexture(0, getFontTexture(this.textFont).texture, BGFX_SAMPLER_NONE);
-    this.uniformTextPosition.set(this.textPosition.x, this.textPosition.y, this.textPosition.z, this.textOrientation.ordinal());
-    this.uniformTextOffset.set(this.textOffsetX, this.textOffsetY);
-    this.uniformTextMetrics.set(this.textSize, this.textScale.ordinal(), view.getAspectRatio(), this.glx.window.getUIZoom() * 2f / view.getHeight() * this.glx.window.getSystemContentScaleY());
-    this.uniformTextColor.setARGB(this.textColorARGB);
-    this.uniformBackgroundColor.setARGB(this.backgroundColorARGB);
+  protected void setUniforms(Encoder encoder, View view) {
+    this.uniformFontSampler.setTexture(encoder, 0, getFontTexture(this.textFont).texture, BGFX_SAMPLER_NONE);
+    this.uniformTextPosition.set(encoder, this.textPosition.x, this.textPosition.y, this.textPosition.z, this.textOrientation.ordinal());
+    this.uniformTextOffset.set(encoder, this.textOffsetX, this.textOffsetY);
+    this.uniformTextMetrics.set(encoder, this.textSize, this.textScale.ordinal(), view.getAspectRatio(), this.glx.window.getUIZoom() * 2f / view.getHeight() * this.glx.window.getSystemContentScaleY());
+    this.uniformTextColor.setARGB(encoder, this.textColorARGB);
+    this.uniformBackgroundColor.setARGB(encoder, this.backgroundColorARGB);
   }
 
   @Override
@@ -523,6 +613,7 @@ public class Text3d extends ShaderProgram {
     this.uniformBackgroundColor.dispose();
     this.uniformTextOffset.dispose();
     this.uniformTextMetrics.dispose();
+    this.labelBuffer.dispose();
     for (FontTexture fontTexture : this.fontTextures) {
       fontTexture.dispose();
     }
@@ -18,6 +18,8 @@
 
 package heronarts.glx.shader;
 
+import heronarts.glx.BGFXEngine;
+import heronarts.glx.Encoder;
 import heronarts.glx.GLX;
 import heronarts.glx.VertexBuffer;
 import heronarts.glx.View;
@@ -33,7 +35,7 @@ public class UniformFill extends ShaderProgram {
   private int fillColorARGB;
 
   public UniformFill(GLX glx) {
-    super(glx, "vs_shape", "fs_shape");
+    super(glx, "vs_shape", "fs_shape", true);
     this.uniformFillColor = new Uniform.Vec4f(glx, "u_fillColor");
     setFillColor(0xffffffff);
   }
@@ -55,9 +57,27 @@ public class UniformFill extends ShaderProgram {
     return this;
   }
 
+  /**
+   * Submits with the given fill color set directly on the encoder, leaving the
+   * fill color of this program unchanged. May be called from multiple thread
+   * encoders concurrently.
+   *
+   * @param encoder Encoder to record the draw call
+   * @param view View to submit to
+   * @param state BGFX state flags
+   * @param fillColor Fill color in ARGB format
+   * @param buffers Vertex and index buffers
+   * @return this
+   */
+  public UniformFill submit(Encoder encoder, View view, long state, int fillColor, BGFXEngine.Buffer ... buffers) {
+    this.uniformFillColor.setARGB(encoder, fillColor);
+    submitDraw(encoder, view, state, buffers);
+    return this;
+  }
+
   @Override
-  protected void setUniforms(View view) {
-    this.uniformFillColor.setARGB(this.fillColorARGB);
+  protected void setUniforms(Encoder encoder, View view) {
+    this.uniformFillColor.setARGB(encoder, this.fillColorARGB);
   }
 
   @Override
@@ -27,7 +27,7 @@ import heronarts.glx.GLX;
 public class VertexFill extends ShaderProgram {
 
   public VertexFill(GLX glx) {
-    super(glx, "vs_poly", "fs_poly");
+    super(glx, "vs_poly", "fs_poly", true);
   }
 
 }
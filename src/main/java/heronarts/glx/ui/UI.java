@@ -18,6 +18,7 @@
 
 package heronarts.glx.ui;
 
+import heronarts.glx.FrameProfiler;
 import heronarts.glx.GLX;
 import heronarts.glx.GLXWindow.MouseCursor;
 import heronarts.glx.View;
@@ -320,6 +321,15 @@ public class UI {
     private final List<UIObject> glfwThreadChildren = new ArrayList<UIObject>();
     private final Queue<UI2dContext> renderQueue = new ArrayDeque<UI2dContext>();
 
+    private boolean needsFrame() {
+      for (UIObject child : this.children) {
+        if ((child instanceof UI3dContext context3d) && context3d.needsFrame()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
     public void draw() {
       // The children array is a CopyOnWriteArrayList. Grab a proper copy
       // of it here and do drawing operations against that, so that we don't
@@ -330,31 +340,40 @@ public class UI {
       short viewId = 1;
 
       // Clear the whole window background to avoid edge-flicker
+      lx.bgfx.setViewName(viewId, "Clear");
       this.viewClear.bind(viewId++).touch();
 
+      final FrameProfiler profiler = lx.bgfx.profiler;
+
       // If the redraw flag is set, we need to walk all 2d hierarchies and
       // see which contexts need to be redrawn with the vg layer
       if (redrawFlag.compareAndSet(true, false)) {
         // Pre-pass over all 2d objects, set redraw flags on the UI2dComponent
         // objects and append to the list of 2d contexts that need rendering
+        final long predrawStart = System.nanoTime();
         for (UIObject child : this.glfwThreadChildren) {
           if (child instanceof UI2dComponent) {
             ((UI2dComponent) child).predraw(this.renderQueue, false);
           }
         }
+        final long renderStart = profiler.record(FrameProfiler.Phase.PREDRAW, predrawStart);
 
         // Now we have all of our UI2dContexts ready to go, render all of them
         // as necessary. Note that this is not blitting to the main screen
         // framebuffer, it's rendering the UI2dContexts using NanoVG onto a
         // texture framebuffer owned by the UI2dContext
         UI2dContext context;
+        long contextStart = renderStart;
         while ((context = this.renderQueue.poll()) != null) {
+          lx.bgfx.setViewName(viewId, context.getClass().getName());
           context.render(vg, viewId++);
+          contextStart = profiler.record(FrameProfiler.Phase.RENDER_2D_CONTEXT, contextStart);
           if (viewId > MAX_NVG_VIEWS_PER_PASS) {
             // We're going to have to get to the rest on the next pass..
             break;
           }
         }
+        profiler.record(FrameProfiler.Phase.RENDER_2D, renderStart);
       }
 
       // Finally, draw everything in the root view. Note that we don't
@@ -363,20 +382,26 @@ public class UI {
       // UI2dContext objects for rendering. We render from back to front,
       // re-binding views as needed
       boolean bind2d = true;
+      long draw3dNanos = 0;
       for (UIObject child : this.glfwThreadChildren) {
         if (child instanceof UI2dContext) {
           if (bind2d) {
+            lx.bgfx.setViewName(viewId, "UI2d");
             this.view2d.bind(viewId++);
             bind2d = false;
           }
           ((UI2dContext) child).draw(this.ui, this.view2d);
         } else if (child instanceof UI3dContext) {
+          final long draw3dStart = System.nanoTime();
           UI3dContext context3d = (UI3dContext) child;
+          lx.bgfx.setViewName(viewId, "UI3dContext");
           context3d.view.setId(viewId++);
           context3d.draw(this.ui, context3d.view);
           bind2d = true;
+          draw3dNanos += System.nanoTime() - draw3dStart;
         }
       }
+      profiler.recordNanos(FrameProfiler.Phase.DRAW_3D, draw3dNanos);
     }
   }
 
@@ -385,6 +410,13 @@ public class UI {
    */
   private final AtomicBoolean redrawFlag = new AtomicBoolean(true);
 
+  /**
+   * Explicit frame request, may also be set from any thread
+   */
+  private final AtomicBoolean frameRequested = new AtomicBoolean(true);
+
+  private boolean hasLooped = false;
+
   public class Profiler {
     public long drawNanos = 0;
   }
@@ -1242,6 +1274,31 @@ public class UI {
 
     long drawStart = System.nanoTime();
 
+    // Run loop tasks through the UI tree, unless already done this pass
+    if (!this.hasLooped) {
+      loop();
+    }
+    this.hasLooped = false;
+
+    // Clear frame request before drawing, anything requested during
+    // the draw pass will be picked up on the next frame
+    this.frameRequested.set(false);
+
+    // Draw UIRoot object
+    this.root.draw();
+
+    endDraw();
+
+    this.profiler.drawNanos = System.nanoTime() - drawStart;
+  }
+
+  /**
+   * Runs loop tasks through the UI tree. This is normally invoked by draw(), but
+   * when rendering on demand the BGFX thread calls it on every pass so that
+   * animations and camera motion keep advancing while no frames are drawn.
+   */
+  public final void loop() {
+    final long loopStart = System.nanoTime();
     long nowMillis = System.currentTimeMillis();
     if (this.lastMillis == INIT_RUN) {
       // Initial frame is arbitrarily 16 milliseconds (~60 fps)
@@ -1250,15 +1307,31 @@ public class UI {
     double deltaMs = nowMillis - this.lastMillis;
     this.lastMillis = nowMillis;
 
-    // Run loop tasks through the UI tree
     this.root.loop(deltaMs);
+    this.hasLooped = true;
+    this.lx.bgfx.profiler.record(FrameProfiler.Phase.LOOP, loopStart);
+  }
 
-    // Draw UIRoot object
-    this.root.draw();
-
-    endDraw();
+  /**
+   * Whether anything in the UI has changed such that a new frame should be drawn.
+   * Should be checked after loop() has been called.
+   *
+   * @return <code>true</code> if a 2d redraw is pending, a frame was requested, or a 3d camera moved
+   */
+  public boolean needsFrame() {
+    return
+      this.frameRequested.get() ||
+      this.redrawFlag.get() ||
+      this.root.needsFrame();
+  }
 
-    this.profiler.drawNanos = System.nanoTime() - drawStart;
+  /**
+   * Requests that a new frame be drawn. This only matters when rendering on
+   * demand, and is a way for components whose content changes outside of the
+   * 2d redraw mechanism to be seen. May be called from any thread.
+   */
+  public void requestFrame() {
+    this.frameRequested.set(true);
   }
 
   protected void beginDraw() {
@@ -1274,6 +1347,7 @@ public class UI {
   }
 
   public void mouseEvent(MouseEvent mouseEvent) {
+    requestFrame();
     switch (mouseEvent.getAction()) {
     case SCROLL:
       this.root.mouseScroll(mouseEvent, mouseEvent.x, mouseEvent.y, mouseEvent.dx, mouseEvent.dy);
@@ -1294,6 +1368,7 @@ public class UI {
   }
 
   public void keyEvent(KeyEvent keyEvent) {
+    requestFrame();
     _engineThreadDefaultKeyEvent(keyEvent);
 
     char keyChar = keyEvent.getKeyChar();
@@ -1335,6 +1410,7 @@ public class UI {
   }
 
   public void gamepadEvent(GamepadEvent gamepadEvent) {
+    requestFrame();
     switch (gamepadEvent.getAction()) {
     case BUTTON_PRESS:
       this.root.onGamepadButtonPressed(gamepadEvent, gamepadEvent.button);
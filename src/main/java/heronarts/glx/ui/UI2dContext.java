@@ -72,7 +72,12 @@ public class UI2dContext extends UI2dContainer implements UILayer {
     vg.bindFramebuffer(this.framebuffer);
     vg.beginFrame(this.width, this.height);
     vg.scissor(0, 0, this.width, this.height);
-    super.draw(this.ui, vg);
+    this.ui.lx.bgfx.resources.pushOwner(this);
+    try {
+      super.draw(this.ui, vg);
+    } finally {
+      this.ui.lx.bgfx.resources.popOwner();
+    }
     vg.endFrame();
 
     // Note: this super.draw() call will have cleared the
@@ -81,7 +81,12 @@ public abstract class UI3dComponent extends UIObject {
     if (!isVisible()) {
       return;
     }
-    onDraw(ui, view);
+    ui.lx.bgfx.resources.pushOwner(this);
+    try {
+      onDraw(ui, view);
+    } finally {
+      ui.lx.bgfx.resources.popOwner();
+    }
     for (UIObject child : this.children) {
       ((UI3dComponent) child).draw(ui, view);
     }
@@ -1038,6 +1038,30 @@ public class UI3dContext extends UIObject implements LXSerializable, UILayer, UI
       this.xDamped, this.yDamped, this.zDamped
     );
 
+  // Separate monitor used by render-on-demand, so as not to interfere with
+  // the cameraMonitor that notifies child components
+  private final LXParameter.MultiMonitor frameMonitor =
+    new LXParameter.MultiMonitor(
+      this.radiusDamped, this.thetaDamped, this.phiDamped,
+      this.xDamped, this.yDamped, this.zDamped,
+      this.projection, this.perspective, this.depth
+    );
+
+  /**
+   * Whether this context needs a new frame to be drawn, either because the
+   * camera is in motion or the visibility of the context has changed.
+   *
+   * @return <code>true</code> if the context should be re-drawn
+   */
+  boolean needsFrame() {
+    // NOTE: camera animation and autopilot are applied in computeCamera(), which
+    // only runs when we draw, so keep drawing while either of them is active
+    return
+      this.frameMonitor.changed() ||
+      (isVisible() != this.needsClear) ||
+      (isVisible() && (this.animating.isRunning() || this.autopilot.enabled.isOn()));
+  }
+
   private void computeCamera(boolean initialize) {
     if (this.animating.isRunning() || this.animating.finished()) {
       this.camera.lerp(this.cameraFrom, this.cameraTo, this.animating.getBasis());
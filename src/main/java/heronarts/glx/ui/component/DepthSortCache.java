@@ -0,0 +1,130 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.glx.ui.component;
+
+/**
+ * Precomputed back-to-front point orders for a fixed set of quantized view
+ * directions. Because points are sorted by depth along the view direction alone,
+ * the nearest cached order can stand in for a fresh sort when the model is static.
+ * The directions are the integer lattice points on the surface of a cube of the
+ * given resolution, e.g. 26 directions for resolution 1 and 98 for resolution 2.
+ * Orders are filled in by the DepthSortWorker and are only valid once the cache
+ * reports itself as ready.
+ */
+class DepthSortCache {
+
+  /**
+   * Number of cached directions at a given resolution
+   *
+   * @param resolution Cube subdivision resolution, 1 or greater
+   * @return Number of directions
+   */
+  static int numDirections(int resolution) {
+    final int outer = 2 * resolution + 1;
+    final int inner = 2 * resolution - 1;
+    return outer * outer * outer - inner * inner * inner;
+  }
+
+  /**
+   * Determines the highest resolution, no greater than the one requested, at
+   * which a cache of the given number of points fits within a memory budget
+   *
+   * @param resolution Requested resolution
+   * @param numPoints Number of points
+   * @param maxBytes Memory budget in bytes
+   * @return Resolution that fits the budget, or 0 if none does
+   */
+  static int fitResolution(int resolution, int numPoints, long maxBytes) {
+    while (resolution > 0) {
+      if ((long) numDirections(resolution) * numPoints * Integer.BYTES <= maxBytes) {
+        break;
+      }
+      --resolution;
+    }
+    return resolution;
+  }
+
+  final int size;
+  final float[] directions;
+  final int[][] orders;
+
+  // NOTE: only ever incremented by the worker thread
+  private volatile int numBuilt = 0;
+
+  DepthSortCache(int resolution, int size) {
+    final int numDirections = numDirections(resolution);
+    this.size = size;
+    this.directions = new float[3 * numDirections];
+    this.orders = new int[numDirections][size];
+    int d = 0;
+    for (int x = -resolution; x <= resolution; ++x) {
+      for (int y = -resolution; y <= resolution; ++y) {
+        for (int z = -resolution; z <= resolution; ++z) {
+          if (Math.max(Math.abs(x), Math.max(Math.abs(y), Math.abs(z))) == resolution) {
+            final float length = (float) Math.sqrt(x*x + y*y + z*z);
+            this.directions[d++] = x / length;
+            this.directions[d++] = y / length;
+            this.directions[d++] = z / length;
+          }
+        }
+      }
+    }
+  }
+
+  int numDirections() {
+    return this.orders.length;
+  }
+
+  /**
+   * Marks the order for the next direction as complete, called by the worker
+   */
+  void built() {
+    ++this.numBuilt;
+  }
+
+  int numBuilt() {
+    return this.numBuilt;
+  }
+
+  boolean isReady() {
+    return this.numBuilt == this.orders.length;
+  }
+
+  /**
+   * Finds the cached direction closest to the given direction
+   *
+   * @param dx Direction x-component
+   * @param dy Direction y-component
+   * @param dz Direction z-component
+   * @return Index of the nearest cached direction
+   */
+  int nearest(float dx, float dy, float dz) {
+    int nearest = 0;
+    float maxDot = Float.NEGATIVE_INFINITY;
+    for (int i = 0, d = 0; i < this.orders.length; ++i, d += 3) {
+      final float dot = dx * this.directions[d] + dy * this.directions[d+1] + dz * this.directions[d+2];
+      if (dot > maxDot) {
+        maxDot = dot;
+        nearest = i;
+      }
+    }
+    return nearest;
+  }
+
+}
@@ -0,0 +1,277 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.glx.ui.component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import heronarts.glx.GLX;
+import heronarts.lx.model.LXPoint;
+
+/**
+ * Runs a DepthSorter on a dedicated background thread, so that sorting large point
+ * clouds does not stall the BGFX thread. Requests carry a snapshot of the view
+ * direction and the arrays to write results into, which must not be touched by
+ * the requester until the matching result has been polled. Only one request is
+ * processed at a time, a newer pending request supersedes an older one. When
+ * there are no requests, the worker fills in a DepthSortCache one direction at
+ * a time, so that building the cache never delays a view sort by more than a
+ * single sort.
+ */
+class DepthSortWorker {
+
+  /**
+   * Receives the sorted order on the worker thread, e.g. to expand it into an
+   * index buffer's memory
+   */
+  interface Output {
+    void write(int[] order, int size);
+  }
+
+  static class Request {
+    private final long token;
+    private final List<LXPoint> points;
+    private final float dx, dy, dz;
+    private final int[] order;
+    private final Output output;
+    private int[] sorted = null;
+
+    /**
+     * Constructs a sort request
+     *
+     * @param token Identifies the state of the requester, returned in the result
+     * @param points Points to copy positions from, or null to reuse the previous positions
+     * @param dx Depth direction x-component
+     * @param dy Depth direction y-component
+     * @param dz Depth direction z-component
+     * @param order Array that receives the sorted point order
+     * @param output Optional output to write on the worker thread, may be null
+     */
+    Request(long token, List<LXPoint> points, float dx, float dy, float dz, int[] order, Output output) {
+      this.token = token;
+      this.points = points;
+      this.dx = dx;
+      this.dy = dy;
+      this.dz = dz;
+      this.order = order;
+      this.output = output;
+    }
+
+    /**
+     * Uses a precomputed order rather than sorting, e.g. from a DepthSortCache
+     *
+     * @param sorted Point order to copy into the output
+     * @return this
+     */
+    Request setSorted(int[] sorted) {
+      this.sorted = sorted;
+      return this;
+    }
+  }
+
+  static class Result {
+    final long token;
+    final int size;
+
+    private Result(long token, int size) {
+      this.token = token;
+      this.size = size;
+    }
+  }
+
+  private final DepthSorter sorter = new DepthSorter();
+  private final AtomicReference<Result> completed = new AtomicReference<>();
+
+  // Guarded by this
+  private Thread thread = null;
+  private Request pending = null;
+  private DepthSortCache cache = null;
+  private List<LXPoint> cachePoints = null;
+  private boolean busy = false;
+  private boolean disposed = false;
+
+  /**
+   * Queues a sort request, replacing any request that has not yet started
+   *
+   * @param request Sort request
+   */
+  synchronized void request(Request request) {
+    if (this.disposed) {
+      throw new IllegalStateException("Cannot request sort from disposed DepthSortWorker");
+    }
+    this.pending = request;
+    start();
+  }
+
+  /**
+   * Starts filling in a cache of sorted orders in the background, replacing
+   * any cache that was previously being built
+   *
+   * @param cache Cache to fill in
+   * @param points Points to copy positions from
+   */
+  synchronized void buildCache(DepthSortCache cache, List<LXPoint> points) {
+    if (this.disposed) {
+      throw new IllegalStateException("Cannot build cache on disposed DepthSortWorker");
+    }
+    this.cache = cache;
+    this.cachePoints = points;
+    start();
+  }
+
+  private void start() {
+    if (this.thread == null) {
+      this.thread = new Thread(this::run, "GLX Depth Sort");
+      this.thread.setDaemon(true);
+      this.thread.start();
+    }
+    notifyAll();
+  }
+
+  /**
+   * Takes the most recently completed result, if any
+   *
+   * @return Completed result, or null
+   */
+  Result poll() {
+    return this.completed.getAndSet(null);
+  }
+
+  /**
+   * Drops any pending request and cache build and waits for a sort in progress
+   * to finish, after which no arrays or outputs from previous requests are in use
+   */
+  synchronized void cancel() {
+    this.pending = null;
+    this.cache = null;
+    this.cachePoints = null;
+    awaitIdle();
+    this.completed.set(null);
+  }
+
+  synchronized void dispose() {
+    this.disposed = true;
+    notifyAll();
+    cancel();
+  }
+
+  private void awaitIdle() {
+    boolean interrupted = false;
+    while (this.busy) {
+      try {
+        wait();
+      } catch (InterruptedException ix) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void sort(Request request) {
+    final int size;
+    if (request.sorted != null) {
+      size = request.sorted.length;
+      System.arraycopy(request.sorted, 0, request.order, 0, size);
+    } else {
+      if (request.points != null) {
+        this.sorter.setPoints(request.points);
+      }
+      this.sorter.sort(request.dx, request.dy, request.dz);
+      size = this.sorter.size();
+      System.arraycopy(this.sorter.getOrder(), 0, request.order, 0, size);
+    }
+    if (request.output != null) {
+      request.output.write(request.order, size);
+    }
+    this.completed.set(new Result(request.token, size));
+  }
+
+  private void buildCache(DepthSortCache cache, List<LXPoint> points) {
+    if (points != null) {
+      this.sorter.setPoints(points);
+    }
+    final int direction = cache.numBuilt();
+    final float[] directions = cache.directions;
+    this.sorter.sort(directions[3*direction], directions[3*direction+1], directions[3*direction+2]);
+    System.arraycopy(this.sorter.getOrder(), 0, cache.orders[direction], 0, cache.size);
+    cache.built();
+    if (cache.isReady()) {
+      synchronized (this) {
+        if (this.cache == cache) {
+          this.cache = null;
+        }
+      }
+    }
+  }
+
+  private void run() {
+    while (true) {
+      final Request request;
+      final DepthSortCache cache;
+      final List<LXPoint> cachePoints;
+      synchronized (this) {
+        while ((this.pending == null) && (this.cache == null) && !this.disposed) {
+          try {
+            wait();
+          } catch (InterruptedException ix) {
+            // Only exits when disposed
+          }
+        }
+        if (this.disposed) {
+          return;
+        }
+        request = this.pending;
+        this.pending = null;
+        if (request == null) {
+          cache = this.cache;
+          cachePoints = this.cachePoints;
+          this.cachePoints = null;
+        } else {
+          cache = null;
+          cachePoints = null;
+        }
+        this.busy = true;
+      }
+      try {
+        if (request != null) {
+          sort(request);
+        } else {
+          buildCache(cache, cachePoints);
+        }
+      } catch (Exception x) {
+        GLX.error(x, "Error in background depth sort");
+        if (cache != null) {
+          synchronized (this) {
+            if (this.cache == cache) {
+              this.cache = null;
+            }
+          }
+        }
+      } finally {
+        synchronized (this) {
+          this.busy = false;
+          notifyAll();
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.glx.ui.component;
+
+import java.util.Arrays;
+import java.util.List;
+
+import heronarts.lx.model.LXPoint;
+
+/**
+ * Orders points from back to front along a view direction. Point positions are
+ * copied into flat arrays and depths are mapped to integer keys which are ordered
+ * by an LSD radix sort, avoiding object dereferences and comparator calls. No
+ * memory is allocated by sort() once the points have been set.
+ */
+public class DepthSorter {
+
+  private static final int RADIX_BITS = 11;
+  private static final int RADIX_SIZE = 1 << RADIX_BITS;
+  private static final int RADIX_MASK = RADIX_SIZE - 1;
+  private static final int NUM_PASSES = (Integer.SIZE + RADIX_BITS - 1) / RADIX_BITS;
+
+  private int size = 0;
+
+  private float[] x = new float[0];
+  private float[] y = new float[0];
+  private float[] z = new float[0];
+
+  private int[] keys = new int[0];
+  private int[] keysScratch = new int[0];
+  private int[] order = new int[0];
+  private int[] orderScratch = new int[0];
+
+  private final int[] counts = new int[NUM_PASSES * RADIX_SIZE];
+
+  /**
+   * Sets the points to be sorted, copying their current positions. Must be called
+   * again if the point positions change. The order is reset to the list order.
+   *
+   * @param points Points
+   * @return this
+   */
+  public DepthSorter setPoints(List<LXPoint> points) {
+    final int size = points.size();
+    if (size > this.x.length) {
+      this.x = new float[size];
+      this.y = new float[size];
+      this.z = new float[size];
+      this.keys = new int[size];
+      this.keysScratch = new int[size];
+      this.order = new int[size];
+      this.orderScratch = new int[size];
+    }
+    this.size = size;
+    int i = 0;
+    for (LXPoint p : points) {
+      this.x[i] = p.x;
+      this.y[i] = p.y;
+      this.z[i] = p.z;
+      this.order[i] = i;
+      ++i;
+    }
+    return this;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the point order from the last sort, as indices into the list passed
+   * to setPoints(). Only the first size() entries are valid. The array is reused
+   * and overwritten by subsequent calls.
+   *
+   * @return Point indices from back to front
+   */
+  public int[] getOrder() {
+    return this.order;
+  }
+
+  /**
+   * Sorts the points in order of decreasing depth, where the depth of a point is
+   * its dot product with the given direction. The sort is stable.
+   *
+   * @param dx Depth direction x-component
+   * @param dy Depth direction y-component
+   * @param dz Depth direction z-component
+   * @return this
+   */
+  public DepthSorter sort(float dx, float dy, float dz) {
+    final int size = this.size;
+    if (size == 0) {
+      return this;
+    }
+    final float[] x = this.x, y = this.y, z = this.z;
+    final int[] keys = this.keys;
+    final int[] counts = this.counts;
+
+    // Compute keys and histograms of all digits in a single pass. Keys are in
+    // point order, the previous sort order is discarded.
+    Arrays.fill(counts, 0);
+    for (int i = 0; i < size; ++i) {
+      final int key = descendingKey(dx * x[i] + dy * y[i] + dz * z[i]);
+      keys[i] = key;
+      for (int pass = 0; pass < NUM_PASSES; ++pass) {
+        ++counts[pass * RADIX_SIZE + ((key >>> (pass * RADIX_BITS)) & RADIX_MASK)];
+      }
+      this.order[i] = i;
+    }
+
+    int[] srcKeys = keys, dstKeys = this.keysScratch;
+    int[] srcOrder = this.order, dstOrder = this.orderScratch;
+    for (int pass = 0; pass < NUM_PASSES; ++pass) {
+      final int offset = pass * RADIX_SIZE;
+      final int shift = pass * RADIX_BITS;
+
+      // Skip a pass in which every key has the same digit
+      if (counts[offset + ((srcKeys[0] >>> shift) & RADIX_MASK)] == size) {
+        continue;
+      }
+
+      // Convert counts to starting positions
+      int sum = 0;
+      for (int d = 0; d < RADIX_SIZE; ++d) {
+        final int count = counts[offset + d];
+        counts[offset + d] = sum;
+        sum += count;
+      }
+
+      for (int i = 0; i < size; ++i) {
+        final int key = srcKeys[i];
+        final int dst = counts[offset + ((key >>> shift) & RADIX_MASK)]++;
+        dstKeys[dst] = key;
+        dstOrder[dst] = srcOrder[i];
+      }
+
+      final int[] swapKeys = srcKeys; srcKeys = dstKeys; dstKeys = swapKeys;
+      final int[] swapOrder = srcOrder; srcOrder = dstOrder; dstOrder = swapOrder;
+    }
+
+    this.keys = srcKeys;
+    this.keysScratch = dstKeys;
+    this.order = srcOrder;
+    this.orderScratch = dstOrder;
+    return this;
+  }
+
+  /**
+   * Maps a float to an int whose unsigned ascending order matches descending
+   * order of the floats. Positive NaN values sort before all others.
+   *
+   * @param f Float value
+   * @return Sort key
+   */
+  static int descendingKey(float f) {
+    final int bits = Float.floatToRawIntBits(f);
+    // Ascending unsigned order flips the sign bit of positives, all bits of negatives
+    final int ascending = bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+    return ~ascending;
+  }
+
+}
@@ -18,8 +18,6 @@
 
 package heronarts.glx.ui.component;
 
-import static org.lwjgl.bgfx.BGFX.bgfx_set_transform;
-
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -38,12 +36,15 @@ import org.lwjgl.assimp.AIScene;
 import org.lwjgl.assimp.AIVector3D;
 import org.lwjgl.assimp.Assimp;
 import org.lwjgl.bgfx.BGFX;
+import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 
+import heronarts.glx.Encoder;
 import heronarts.glx.GLX;
 import heronarts.glx.Texture;
 import heronarts.glx.VertexBuffer;
 import heronarts.glx.VertexDeclaration;
+import heronarts.glx.VertexWriter;
 import heronarts.glx.View;
 import heronarts.glx.ui.UI;
 import heronarts.glx.ui.UI3dComponent;
@@ -74,7 +75,28 @@ public class UIModelMeshes extends UI3dComponent {
       this.mesh = mesh;
     }
 
-    protected void renderVertexBuffer(UI ui, View view, VertexBuffer vertexBuffer) {
+    /**
+     * Whether this mesh may be recorded from a thread encoder. Texture meshes are
+     * drawn with Tex2d which uses the global bgfx API.
+     *
+     * @return <code>true</code> if this mesh can be recorded on a worker thread
+     */
+    protected boolean isThreadSafe() {
+      return this.mesh.type != LXModel.Mesh.Type.TEXTURE_2D;
+    }
+
+    private void setTransform(Encoder encoder) {
+      if (encoder.isThreadEncoder()) {
+        // The shared matrix buffer is only for the BGFX thread, bgfx copies the transform
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+          encoder.setTransform(this.model.transform.put(stack.mallocFloat(16), LXMatrix.BufferOrder.COLUMN_MAJOR));
+        }
+      } else {
+        encoder.setTransform(this.model.transform.put(modelMatrixBuf, LXMatrix.BufferOrder.COLUMN_MAJOR));
+      }
+    }
+
+    protected void renderVertexBuffer(UI ui, View view, Encoder encoder, VertexBuffer vertexBuffer) {
       final long bgfxState =
         BGFX.BGFX_STATE_WRITE_RGB |
         BGFX.BGFX_STATE_WRITE_A |
@@ -88,27 +110,21 @@ public class UIModelMeshes extends UI3dComponent {
         return;
       }
 
-      bgfx_set_transform(this.model.transform.put(modelMatrixBuf, LXMatrix.BufferOrder.COLUMN_MAJOR));
+      setTransform(encoder);
       switch (this.mesh.type) {
         case UNIFORM_FILL -> {
-          ui.lx.program.uniformFill.setFillColor(this.mesh.color);
-          ui.lx.program.uniformFill.submit(view, bgfxState, vertexBuffer);
+          ui.lx.program.uniformFill.submit(encoder, view, bgfxState, this.mesh.color, vertexBuffer);
         }
         case TEXTURE_2D -> {
           ui.lx.program.tex2d.submitPostTransform(view, bgfxState, texture, vertexBuffer);
         }
         case PHONG -> {
-          ui.lx.program.phong.setEyePosition(getContext().getEye());
-          ui.lx.program.phong.setLightColor(this.mesh.lightColor);
-          ui.lx.program.phong.setLightDirection(this.mesh.lightDirection);
-          ui.lx.program.phong.setLighting(this.mesh.lighting);
-          ui.lx.program.phong.setObjectColor(0xffffffff);
-          ui.lx.program.phong.submit(view, bgfxState, vertexBuffer);
+          ui.lx.program.phong.submit(encoder, view, bgfxState, getContext().getEye(), this.mesh, 0xffffffff, vertexBuffer);
         }
       }
     }
 
-    protected void renderNormalBuffer(UI ui, View view, VertexBuffer normalBuffer) {
+    protected void renderNormalBuffer(UI ui, View view, Encoder encoder, VertexBuffer normalBuffer) {
       final long bgfxState =
         BGFX.BGFX_STATE_WRITE_RGB |
         BGFX.BGFX_STATE_WRITE_A |
@@ -117,14 +133,13 @@ public class UIModelMeshes extends UI3dComponent {
         BGFX.BGFX_STATE_DEPTH_TEST_LESS |
         BGFX.BGFX_STATE_PT_LINES;
 
-      bgfx_set_transform(this.model.transform.put(modelMatrixBuf, LXMatrix.BufferOrder.COLUMN_MAJOR));
-      ui.lx.program.uniformFill.setFillColor(0xffff0000);
-      ui.lx.program.uniformFill.submit(view, bgfxState, normalBuffer);
+      setTransform(encoder);
+      ui.lx.program.uniformFill.submit(encoder, view, bgfxState, 0xffff0000, normalBuffer);
     }
 
     protected Texture getTexture() { return null; }
 
-    protected abstract void render(UI ui, View view);
+    protected abstract void render(UI ui, View view, Encoder encoder);
 
     protected abstract void dispose();
   }
@@ -184,21 +199,22 @@ public class UIModelMeshes extends UI3dComponent {
       this.vertexBuffer = new VertexBuffer(lx, mesh.vertices.size(), vertexAttributes.toArray(new VertexDeclaration.Attribute[0])) {
         @Override
         protected void bufferData(ByteBuffer buffer) {
+          final VertexWriter writer = new VertexWriter(buffer);
           int vIndex = 0;
           for (LXModel.Mesh.Vertex v : mesh.vertices) {
-            putVertex(v.x, v.y, v.z);
+            writer.putVertex(v.x, v.y, v.z);
             if (hasColor) {
-              buffer.putInt(0xffffffff);
+              writer.putColor(0xffffffff);
             }
             if (hasNormals) {
-              putVertex(normals[vIndex/3].x, normals[vIndex/3].y, normals[vIndex/3].z);
+              writer.putNormal(normals[vIndex/3].x, normals[vIndex/3].y, normals[vIndex/3].z);
             }
             if (hasTexture) {
-              buffer.putFloat(v.u);
-              buffer.putFloat(v.v);
+              writer.putTex2d(v.u, v.v);
             }
             ++vIndex;
           }
+          writer.finish();
         }
       };
 
@@ -210,8 +226,8 @@ public class UIModelMeshes extends UI3dComponent {
     }
 
     @Override
-    protected void render(UI ui, View view) {
-      renderVertexBuffer(ui, view, this.vertexBuffer);
+    protected void render(UI ui, View view, Encoder encoder) {
+      renderVertexBuffer(ui, view, encoder, this.vertexBuffer);
     }
 
     @Override
@@ -300,19 +316,21 @@ public class UIModelMeshes extends UI3dComponent {
           this.vertexBuffers.add(new VertexBuffer(lx, indices.size(), VertexDeclaration.Attribute.POSITION, VertexDeclaration.Attribute.COLOR0, VertexDeclaration.Attribute.NORMAL) {
             @Override
             protected void bufferData(ByteBuffer buffer) {
+              final VertexWriter writer = new VertexWriter(buffer);
               for (int index : indices) {
-                putVertex(
+                writer.putVertex(
                   vertices[3*index],
                   vertices[3*index + 1],
                   vertices[3*index + 2]
                 );
-                buffer.putInt(0xffffffff);
-                putVertex(
+                writer.putColor(0xffffffff);
+                writer.putNormal(
                   normals[3*index],
                   normals[3*index + 1],
                   normals[3*index + 2]
                 );
               }
+              writer.finish();
             }
           });
 
@@ -321,18 +339,20 @@ public class UIModelMeshes extends UI3dComponent {
             this.normalBuffers.add(new VertexBuffer(lx, indices.size() * 2, VertexDeclaration.Attribute.POSITION) {
               @Override
               protected void bufferData(ByteBuffer buffer) {
+                final VertexWriter writer = new VertexWriter(buffer);
                 for (int index : indices) {
-                  putVertex(
+                  writer.putVertex(
                     vertices[3*index],
                     vertices[3*index + 1],
                     vertices[3*index + 2]
                   );
-                  putVertex(
+                  writer.putVertex(
                     vertices[3*index] + normals[3*index],
                     vertices[3*index + 1] + normals[3*index + 1],
                     vertices[3*index + 2] + normals[3*index + 2]
                   );
                 }
+                writer.finish();
               }
             });
           }
@@ -373,10 +393,10 @@ public class UIModelMeshes extends UI3dComponent {
     }
 
     @Override
-    protected void render(UI ui, View view) {
-      this.vbo.vertexBuffers.forEach(vertexBuffer -> renderVertexBuffer(ui, view, vertexBuffer));
+    protected void render(UI ui, View view, Encoder encoder) {
+      this.vbo.vertexBuffers.forEach(vertexBuffer -> renderVertexBuffer(ui, view, encoder, vertexBuffer));
       if (DEBUG_NORMAL_VECTORS) {
-        this.vbo.normalBuffers.forEach(vertexBuffer -> renderNormalBuffer(ui, view, vertexBuffer));
+        this.vbo.normalBuffers.forEach(vertexBuffer -> renderNormalBuffer(ui, view, encoder, vertexBuffer));
       }
     }
 
@@ -414,12 +434,33 @@ public class UIModelMeshes extends UI3dComponent {
       updateMeshes(this.model);
     }
 
-    // Draw all the vertex buffers
-    for (Mesh mesh : this.meshes) {
-      mesh.render(ui, view);
+    // Draw all the vertex buffers, in parallel if there are enough of them
+    final int numTasks = Math.min(ui.lx.bgfx.getMaxRecordTasks(), this.meshes.size() / MIN_MESHES_PER_TASK);
+    if (numTasks > 1) {
+      renderParallel(ui, view, numTasks);
+    } else {
+      for (Mesh mesh : this.meshes) {
+        mesh.render(ui, view, ui.lx.bgfx.encoder);
+      }
     }
   }
 
+  private static final int MIN_MESHES_PER_TASK = 16;
+
+  private void renderParallel(UI ui, View view, int numTasks) {
+    final List<Mesh> meshes = this.meshes;
+    final int numMeshes = meshes.size();
+    ui.lx.bgfx.recordParallel(numTasks, (encoder, index) -> {
+      for (int i = 0; i < numMeshes; ++i) {
+        final Mesh mesh = meshes.get(i);
+        // Meshes that need the global API all go to task 0 on the BGFX thread
+        if (mesh.isThreadSafe() ? (i % numTasks == index) : (index == 0)) {
+          mesh.render(ui, view, encoder);
+        }
+      }
+    });
+  }
+
   private static final int MAX_MESHES = 2048;
   private boolean meshLimitReached = false;
 
@@ -21,19 +21,20 @@ package heronarts.glx.ui.component;
 import static org.lwjgl.bgfx.BGFX.*;
 
 import java.nio.ByteBuffer;
-import java.util.Arrays;
-import java.util.Comparator;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
 
 import com.google.gson.JsonObject;
 
 import heronarts.glx.DynamicIndexBuffer;
 import heronarts.glx.DynamicVertexBuffer;
+import heronarts.glx.Encoder;
 import heronarts.glx.GLX;
 import heronarts.glx.Texture;
 import heronarts.glx.VertexBuffer;
 import heronarts.glx.VertexDeclaration;
+import heronarts.glx.VertexWriter;
 import heronarts.glx.View;
 import heronarts.glx.shader.ShaderProgram;
 import heronarts.glx.ui.UI;
@@ -65,7 +66,7 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
     private final Uniform.Vec4f uniformEyePosition;
 
     Program(GLX glx) {
-      super(glx, "vs_led", "fs_led");
+      super(glx, "vs_led", "fs_led", true);
       this.uniformTextureBase = new Uniform.Sampler(glx, "s_texColor");
       this.uniformTextureSparkle = new Uniform.Sampler(glx, "s_texSparkle");
       this.uniformDimensions = new Uniform.Vec4f(glx, "u_dimensions");
@@ -86,15 +87,16 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
     }
 
     @Override
-    public void setUniforms(View view) {
-      this.uniformTextureBase.setTexture(0, textures[params.ledStyle.getValuei()], BGFX_SAMPLER_NONE);
-      this.uniformTextureSparkle.setTexture(1, sparkles[params.ledStyle.getValuei()], BGFX_SAMPLER_U_BORDER | BGFX_SAMPLER_V_BORDER);
+    protected void setUniforms(Encoder encoder, View view) {
+      this.uniformTextureBase.setTexture(encoder, 0, textures[params.ledStyle.getValuei()], BGFX_SAMPLER_NONE);
+      this.uniformTextureSparkle.setTexture(encoder, 1, sparkles[params.ledStyle.getValuei()], BGFX_SAMPLER_U_BORDER | BGFX_SAMPLER_V_BORDER);
 
       final float pointScale = switch (getContext().projection.getEnum()) {
         case PERSPECTIVE -> 2f * params.pointSize.getValuef() / view.getAspectRatio();
         case ORTHOGRAPHIC -> 2f * params.pointSize.getValuef() / LXUtils.maxf(1f, getContext().getRadius());
       };
       this.uniformDimensions.set(
+        encoder,
         global.contrast.getValuef(),
         params.feather.getValuef(),
         view.getAspectRatio(),
@@ -102,6 +104,7 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
       );
 
       this.uniformSparkle.set(
+        encoder,
         params.sparkleAmount.getValuef(),
         params.sparkleCurve.getValuef(),
         (float) Math.toRadians(params.sparkleRotate.getValue()),
@@ -109,88 +112,77 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
       );
 
       this.uniformDirectional.set(
+        encoder,
         (params.directional.getEnum() == DirectionStyle.DIRECTED) ? 1f : 0f,
         (float) Math.cos(.5 * Math.toRadians(params.directionalDispersion.getValuef())),
         LXUtils.lerpf(1f, .1f, params.directionalContrast.getValuef())
       );
 
       final Vector3f eye = getContext().getEye();
-      this.uniformEyePosition.set(eye.x, eye.y, eye.z);
+      this.uniformEyePosition.set(encoder, eye.x, eye.y, eye.z);
     }
   }
 
-  private class IndexBuffer extends DynamicIndexBuffer {
-
-    private static class Point {
-      private final LXPoint point;
-      private float zDepth;
-
-      private Point(LXPoint point) {
-        this.point = point;
-      }
-    }
-
-    private static final Comparator<Point> Z_COMPARATOR = new Comparator<Point>() {
-      @Override
-      public int compare(Point p1, Point p2) {
-        if (p1.zDepth < p2.zDepth) {
-          return 1;
-        } else if (p1.zDepth > p2.zDepth) {
-          return -1;
-        }
-        return 0;
-      }
-    };
-
-    private final Point[] orderedPoints;
+  /**
+   * Index buffer of the points in depth order. Two of these are used, the front
+   * buffer is drawn while the back buffer is written by the depth sort worker.
+   */
+  private class IndexBuffer extends DynamicIndexBuffer implements DepthSortWorker.Output {
 
     private static final int INDICES_PER_POINT = 6;
 
-    public IndexBuffer(GLX glx) {
-      super(glx, model.size * INDICES_PER_POINT, true);
+    // Frame in which the data was last uploaded, the memory is referenced by bgfx
+    // and may not be rewritten until that frame has been fully processed
+    private int updateFrame = -1;
 
-      this.orderedPoints = new Point[model.size];
-      int i = 0;
-      for (LXPoint p : model.points) {
-        this.orderedPoints[i++] = new Point(p);
-      }
-      sortAndUpdate();
+    public IndexBuffer(GLX glx) {
+      super(glx, model.size * INDICES_PER_POINT, true, true);
+      setModel();
     }
 
-    protected void sortAndUpdate() {
-      // long start = System.currentTimeMillis();
-
-      final Matrix4f viewMatrix = getContext().getViewMatrix();
-      final float m02 = viewMatrix.m02();
-      final float m12 = viewMatrix.m12();
-      final float m22 = viewMatrix.m22();
-
-      for (Point p : this.orderedPoints) {
-        p.zDepth = m02 * p.point.x + m12 * p.point.y + m22 * p.point.z;
-      }
-      Arrays.sort(this.orderedPoints, Z_COMPARATOR);
-
-      putData();
+    /**
+     * Resizes the buffer to match the current model and writes the current depth order
+     */
+    protected void setModel() {
+      setNumIndices(model.size * INDICES_PER_POINT);
+      write(depthOrder, model.size);
       update();
-
-      // long end = System.currentTimeMillis();
-      // GLX.log("Sorted " + this.orderedPoints.length + " points in: " + (end-start) + "ms");
     }
 
-    protected void putData() {
+    /**
+     * Writes indices for the given point order, may be called on the depth sort worker
+     * thread while this buffer is not in use by the BGFX thread
+     */
+    @Override
+    public void write(int[] order, int numPoints) {
+      // Indices are written straight to native memory in sorted order
       final ByteBuffer buffer = getIndexData();
-      buffer.rewind();
-      for (Point point : this.orderedPoints) {
-        int index = point.point.index * ModelBuffer.VERTICES_PER_POINT;
-        buffer.putInt(index);
-        buffer.putInt(index+1);
-        buffer.putInt(index+2);
-        buffer.putInt(index+2);
-        buffer.putInt(index+1);
-        buffer.putInt(index+3);
+      if (numPoints * INDICES_PER_POINT * Integer.BYTES > buffer.capacity()) {
+        throw new IllegalStateException("UIPointCloud index buffer too small for " + numPoints + " points");
       }
-      buffer.flip();
-      update();
+      long address = MemoryUtil.memAddress0(buffer);
+      for (int i = 0; i < numPoints; ++i) {
+        final int index = order[i] * ModelBuffer.VERTICES_PER_POINT;
+        MemoryUtil.memPutInt(address, index);
+        MemoryUtil.memPutInt(address + 4, index+1);
+        MemoryUtil.memPutInt(address + 8, index+2);
+        MemoryUtil.memPutInt(address + 12, index+2);
+        MemoryUtil.memPutInt(address + 16, index+1);
+        MemoryUtil.memPutInt(address + 20, index+3);
+        address += INDICES_PER_POINT * Integer.BYTES;
+      }
+      buffer.position(0).limit(numPoints * INDICES_PER_POINT * Integer.BYTES);
+    }
+
+    @Override
+    public void update() {
+      super.update();
+      this.updateFrame = lx.bgfx.getFrameNumber();
+    }
+
+    private boolean isWritable() {
+      // Memory passed by reference to bgfx must remain valid for two frames
+      return lx.bgfx.getFrameNumber() - this.updateFrame >= 2;
     }
   }
 
@@ -204,15 +196,17 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
 
     @Override
     protected void bufferData(ByteBuffer buffer) {
+      final VertexWriter writer = new VertexWriter(buffer);
       bufferDirectionalNormalLength = directionalShowNormalsLength.getValuef();
       for (LXPoint p : model.points) {
-        putVertex(p.x, p.y, p.z);
-        putVertex(
+        writer.putVertex(p.x, p.y, p.z);
+        writer.putVertex(
           p.x + bufferDirectionalNormalLength * p.xnormal,
           p.y + bufferDirectionalNormalLength * p.ynormal,
           p.z + bufferDirectionalNormalLength * p.znormal
         );
       }
+      writer.finish();
     }
   }
 
@@ -220,30 +214,33 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
 
     private static final int VERTICES_PER_POINT = 4;
 
-    private ModelBuffer(GLX lx) {
-      super(lx, model.size * VERTICES_PER_POINT, VertexDeclaration.Attribute.POSITION, VertexDeclaration.Attribute.TEXCOORD1, VertexDeclaration.Attribute.NORMAL);
+    // Positions stay full precision, the corner texture coordinates and point
+    // size are stored as half floats and normals as normalized int16 values,
+    // which the shader receives exactly as it would full floats
+    private ModelBuffer(GLX lx, boolean halfTexcoords) {
+      super(lx, model.size * VERTICES_PER_POINT,
+        VertexDeclaration.Attribute.POSITION,
+        halfTexcoords ? VertexDeclaration.Attribute.TEXCOORD1_HALF : VertexDeclaration.Attribute.TEXCOORD1,
+        VertexDeclaration.Attribute.NORMAL_INT16
+      );
     }
 
     @Override
     protected void bufferData(ByteBuffer buffer) {
+      final VertexWriter writer = new VertexWriter(buffer);
+      final boolean halfTexcoords = modelBufferHalfTexcoords;
       for (LXPoint p : model.points) {
-        putVertex(p.x, p.y, p.z);
-        putTex3d(0f, 0f, p.size);
-        putVertex(p.xnormal, p.ynormal, p.znormal);
-
-        putVertex(p.x, p.y, p.z);
-        putTex3d(1f, 0f, p.size);
-        putVertex(p.xnormal, p.ynormal, p.znormal);
-
-        putVertex(p.x, p.y, p.z);
-        putTex3d(0f, 1f, p.size);
-        putVertex(p.xnormal, p.ynormal, p.znormal);
-
-        putVertex(p.x, p.y, p.z);
-        putTex3d(1f, 1f, p.size);
-        putVertex(p.xnormal, p.ynormal, p.znormal);
+        for (int i = 0; i < VERTICES_PER_POINT; ++i) {
+          writer.putVertex(p.x, p.y, p.z);
+          if (halfTexcoords) {
+            writer.putTex3dHalf(i & 1, i >> 1, p.size);
+          } else {
+            writer.putTex3d(i & 1, i >> 1, p.size);
+          }
+          writer.putNormalInt16(p.xnormal, p.ynormal, p.znormal);
+        }
       }
-
+      writer.finish();
     }
   }
 
@@ -364,6 +361,13 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
 
   private volatile boolean gammaStale = false;
 
+  // Incremented on the global instance every time the gamma table is rebuilt
+  private int gammaVersion = 0;
+
+  // Versions of the UI frame and gamma table that the color buffer was built from
+  private long colorFrameVersion = -1;
+  private int colorGammaVersion = -1;
+
   public final UIPointCloud global;
   private UIPointCloud params;
 
@@ -377,6 +381,18 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
   private ModelBuffer modelBuffer;
   private DynamicVertexBuffer colorBuffer;
   private IndexBuffer indexBuffer;
+  private IndexBuffer indexBufferBack;
+
+  // Depth sorting runs in the background, the front order is used for drawing
+  // and the back order is written by the worker
+  private final DepthSortWorker depthSortWorker = new DepthSortWorker();
+  private int[] depthOrder = new int[0];
+  private int[] depthOrderBack = new int[0];
+  private long depthSortToken = 0;
+  private boolean depthSortPoints = true;
+  private boolean depthSortPending = false;
+  private DepthSortCache depthSortCache = null;
+  private int depthSortCacheIndex = -1;
 
   // This is the model that our current vertex buffers (UI thread) is based upon,
   // which could be a frame behind the engine!
@@ -389,7 +405,11 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
 
   private final LXParameter.Collection parameters = new LXParameter.Collection();
 
-  private final int[] gammaLut;
+  // Gamma tables for each channel, with values pre-shifted into position so that
+  // a color is corrected by three lookups OR'd together
+  private final int[] gammaLutR;
+  private final int[] gammaLutG;
+  private final int[] gammaLutB;
 
   public UIPointCloud(GLX lx) {
     this(lx, null);
@@ -405,6 +425,7 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
       ++ti;
     };
     this.indexBuffer = null;
+    this.indexBufferBack = null;
     this.colorBuffer = null;
     this.modelBuffer = null;
     this.global = (global != null) ? global : this;
@@ -433,12 +454,14 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
 
     // Global UIPointCloud is responsible for the gamma table
     if (this.global == this) {
-      this.gammaLut = new int[256];
+      this.gammaLutR = new int[256];
+      this.gammaLutG = new int[256];
+      this.gammaLutB = new int[256];
       this.gammaStale = true;
       addListener(this.gammaFloor, p -> this.gammaStale = true);
       addListener(this.gammaPow, p -> this.gammaStale = true);
     } else {
-      this.gammaLut = null;
+      this.gammaLutR = this.gammaLutG = this.gammaLutB = null;
     }
   }
 
@@ -447,7 +470,10 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
   }
 
   public UIPointCloud setAuxiliary(boolean auxiliary) {
-    this.auxiliary = auxiliary;
+    if (this.auxiliary != auxiliary) {
+      this.auxiliary = auxiliary;
+      this.colorFrameVersion = -1;
+    }
     return this;
   }
 
@@ -459,6 +485,11 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
     for (Texture sparkle : this.sparkles) {
       sparkle.dispose();
     }
+    // The worker may be writing to the back index buffer
+    this.depthSortWorker.dispose();
+    if (this.indexBufferBack != null) {
+      this.indexBufferBack.dispose();
+    }
     if (this.indexBuffer != null) {
       this.indexBuffer.dispose();
     }
@@ -475,44 +506,81 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
     super.dispose();
   }
 
+  // Half float texture coordinates are not supported by all renderers
+  private boolean modelBufferHalfTexcoords = false;
+
   private void buildModelBuffer() {
     if (this.modelBuffer != null) {
       this.modelBuffer.dispose();
     }
-    this.modelBuffer = new ModelBuffer(lx);
+    this.modelBufferHalfTexcoords = VertexDeclaration.Attribute.TEXCOORD1_HALF.isSupported(lx);
+    this.modelBuffer = new ModelBuffer(lx, this.modelBufferHalfTexcoords);
   }
 
-  // Need to keep the normal buffer around for at least
-  // 2 frames for bgfx to not get given garbage...
-  private boolean flagBuildNormalBuffer = true;
-
   private boolean flagNormalBufferDirty = true;
 
   private void buildNormalBuffer() {
-    if (this.flagBuildNormalBuffer) {
-      if (this.normalBuffer != null) {
-        this.normalBuffer.dispose();
-      }
-      this.normalBuffer = new NormalBuffer(lx);
-      this.flagBuildNormalBuffer = false;
-      this.flagNormalBufferDirty = false;
-    } else {
-      this.flagBuildNormalBuffer = true;
+    if (this.normalBuffer != null) {
+      this.normalBuffer.dispose();
     }
+    this.normalBuffer = new NormalBuffer(lx);
+    this.flagNormalBufferDirty = false;
   }
 
   private void buildColorBuffer() {
-    if (this.colorBuffer != null) {
-      this.colorBuffer.dispose();
+    final int numVertices = this.model.size * ModelBuffer.VERTICES_PER_POINT;
+    if (this.colorBuffer == null) {
+      this.colorBuffer = new DynamicVertexBuffer(lx, numVertices, true, VertexDeclaration.Attribute.COLOR0);
+    } else {
+      this.colorBuffer.setNumVertices(numVertices);
     }
-    this.colorBuffer = new DynamicVertexBuffer(lx, this.model.size * ModelBuffer.VERTICES_PER_POINT, VertexDeclaration.Attribute.COLOR0);
+    this.colorFrameVersion = -1;
   }
 
   private void buildIndexBuffer() {
-    if (this.indexBuffer != null) {
-      this.indexBuffer.dispose();
+    if (this.indexBuffer == null) {
+      this.indexBuffer = new IndexBuffer(lx);
+      this.indexBufferBack = new IndexBuffer(lx);
+    } else {
+      this.indexBuffer.setModel();
+      this.indexBufferBack.setModel();
+    }
+  }
+
+  private void resetDepthOrder() {
+    // No sort may be in progress while the order arrays and index buffers are rebuilt
+    this.depthSortWorker.cancel();
+    this.depthSortPending = false;
+    if (this.depthOrder.length < this.model.size) {
+      this.depthOrder = new int[this.model.size];
+      this.depthOrderBack = new int[this.model.size];
+    }
+    for (int i = 0; i < this.model.size; ++i) {
+      this.depthOrder[i] = i;
+    }
+    ++this.depthSortToken;
+    this.depthSortPoints = true;
+    this.needsZSort = true;
+    this.zSortMillis = 0;
+  }
+
+  private void buildDepthSortCache() {
+    this.depthSortCache = null;
+    this.depthSortCacheIndex = -1;
+    final int requested = this.lx.flags.pointCloudSortCacheResolution;
+    if (requested <= 0) {
+      return;
+    }
+    final int resolution = DepthSortCache.fitResolution(requested, this.model.size, this.lx.flags.pointCloudSortCacheMaxBytes);
+    if (resolution <= 0) {
+      GLX.log("UIPointCloud depth sort cache disabled, model with " + this.model.size + " points exceeds memory budget");
+      return;
     }
-    this.indexBuffer = new IndexBuffer(lx);
+    if (resolution < requested) {
+      GLX.log("UIPointCloud depth sort cache resolution reduced to " + resolution + " to fit memory budget");
+    }
+    this.depthSortCache = new DepthSortCache(resolution, this.model.size);
+    this.depthSortWorker.buildCache(this.depthSortCache, this.model.points);
   }
 
   @Override
@@ -531,65 +599,65 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
       LXModel oldModel = this.model;
       this.model = frameModel;
       this.modelGeneration = frameModelGeneration;
-      buildModelBuffer();
       this.flagNormalBufferDirty = true;
+      resetDepthOrder();
+      buildDepthSortCache();
+      buildModelBuffer();
       if ((this.colorBuffer == null) || (oldModel == null) || (oldModel.size != frameModel.size)) {
         buildColorBuffer();
       }
-      if ((this.indexBuffer == null) || (oldModel == null) || (oldModel.size != frameModel.size)) {
-        buildIndexBuffer();
-      }
+      buildIndexBuffer();
     } else if (this.modelGeneration != frameModelGeneration) {
-      // Model geometry (but not size) has changed, rebuild model buffer
+      // Model geometry (but not size) has changed, rebuild model buffer. Any sort
+      // in progress used stale positions, its result will be discarded.
       buildModelBuffer();
       this.flagNormalBufferDirty = true;
       this.modelGeneration = frameModelGeneration;
+      ++this.depthSortToken;
+      this.depthSortPoints = true;
       this.needsZSort = true;
       this.zSortMillis = 0;
+      buildDepthSortCache();
+    }
+
+    // Swap in the results of a completed background sort
+    final DepthSortWorker.Result sortResult = this.depthSortWorker.poll();
+    if (sortResult != null) {
+      this.depthSortPending = false;
+      if (sortResult.token == this.depthSortToken) {
+        final int[] depthOrder = this.depthOrder;
+        this.depthOrder = this.depthOrderBack;
+        this.depthOrderBack = depthOrder;
+        this.indexBufferBack.update();
+        final IndexBuffer indexBuffer = this.indexBuffer;
+        this.indexBuffer = this.indexBufferBack;
+        this.indexBufferBack = indexBuffer;
+      }
     }
 
     // Sort the model buffer if the camera perspective has changed
     // We employ a timeout here to avoid needlessly resorting every single frame when
     // the camera is under active motion... instead just do one sort as long as the
-    // flag has been set and a timeout has elapsed.
-    if (this.needsZSort && (System.currentTimeMillis() - this.zSortMillis) > Z_SORT_TIMEOUT_MS) {
-      this.indexBuffer.sortAndUpdate();
+    // flag has been set and a timeout has elapsed. The sort runs on a background
+    // thread using a snapshot of the current view direction.
+    if (this.needsZSort &&
+        !this.depthSortPending &&
+        this.indexBufferBack.isWritable() &&
+        (System.currentTimeMillis() - this.zSortMillis) > Z_SORT_TIMEOUT_MS) {
+      requestDepthSort();
       this.needsZSort = false;
     }
 
     // Update the gamma table if needed
-    if (this.gammaStale) {
-      final int floor = this.gammaFloor.getValuei();
-      final int ceil = this.gammaLut.length - 1;
-      final double pow = this.gammaPow.getValue();
-      this.gammaLut[0] = 0;
-      for (int i = 1; i < this.gammaLut.length; ++i) {
-        double lerp = (i-1.) / (this.gammaLut.length-2.);
-        this.gammaLut[i] = (int) Math.round(LXUtils.lerp(floor, ceil, Math.pow(lerp, pow)));
-      }
-      this.gammaStale = false;
-    };
+    this.global.updateGamma();
 
-    // Update the color data every frame
-    final ByteBuffer colorData = this.colorBuffer.getVertexData();
-    colorData.rewind();
-    for (int c : frame.getColors(this.auxiliary)) {
-      final int a = c & LXColor.ALPHA_MASK;
-      final int r = (c & LXColor.R_MASK) >> LXColor.R_SHIFT;
-      final int g = (c & LXColor.G_MASK) >> LXColor.G_SHIFT;
-      final int b = c & LXColor.B_MASK;
-      final int gammaCorrected =
-        a |
-        (this.global.gammaLut[r] << LXColor.R_SHIFT) |
-        (this.global.gammaLut[g] << LXColor.G_SHIFT) |
-        this.global.gammaLut[b];
-
-      for (int i = 0; i < ModelBuffer.VERTICES_PER_POINT; ++i) {
-        colorData.putInt(gammaCorrected);
-      }
+    // Update the color data only if there's a new LED frame or the gamma table changed
+    final long frameVersion = this.lx.bgfx.getUIFrameVersion();
+    if ((frameVersion != this.colorFrameVersion) || (this.global.gammaVersion != this.colorGammaVersion)) {
+      this.colorFrameVersion = frameVersion;
+      this.colorGammaVersion = this.global.gammaVersion;
+      updateColorBuffer(frame);
     }
-    colorData.flip();
-    this.colorBuffer.update();
 
     final long bgfxState = 0
       | BGFX_STATE_WRITE_RGB
@@ -616,8 +684,7 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
         this.flagNormalBufferDirty = true;
       }
 
-      // Try to rebuild the normal buffer if we need to on this pass or flagged on a prev pass
-      if (this.flagBuildNormalBuffer || this.flagNormalBufferDirty) {
+      if ((this.normalBuffer == null) || this.flagNormalBufferDirty) {
         buildNormalBuffer();
       }
 
@@ -635,6 +702,92 @@ public class UIPointCloud extends UI3dComponent implements LXSerializable {
     }
   }
 
+  /**
+   * Rebuilds the gamma tables if the parameters have changed, only called on the
+   * global instance which owns the tables
+   */
+  private void updateGamma() {
+    if (!this.gammaStale) {
+      return;
+    }
+    final int floor = this.gammaFloor.getValuei();
+    final int ceil = this.gammaLutB.length - 1;
+    final double pow = this.gammaPow.getValue();
+    this.gammaLutR[0] = this.gammaLutG[0] = this.gammaLutB[0] = 0;
+    for (int i = 1; i < this.gammaLutB.length; ++i) {
+      double lerp = (i-1.) / (this.gammaLutB.length-2.);
+      final int gamma = (int) Math.round(LXUtils.lerp(floor, ceil, Math.pow(lerp, pow)));
+      this.gammaLutR[i] = gamma << LXColor.R_SHIFT;
+      this.gammaLutG[i] = gamma << LXColor.G_SHIFT;
+      this.gammaLutB[i] = gamma;
+    }
+    this.gammaStale = false;
+    ++this.gammaVersion;
+  }
+
+  private void updateColorBuffer(LXEngine.Frame frame) {
+    // This is the hottest loop in the UI for large models, colors are written
+    // straight to native memory with every pair of vertex copies in one 64-bit store
+    final ByteBuffer colorData = this.colorBuffer.getVertexData();
+    final int[] colors = frame.getColors(this.auxiliary);
+    final int numPoints = this.model.size;
+    final int numBytes = numPoints * ModelBuffer.VERTICES_PER_POINT * Integer.BYTES;
+    if (numBytes > colorData.capacity()) {
+      throw new IllegalStateException("UIPointCloud color buffer too small for " + numPoints + " points");
+    }
+    final int[] lutR = this.global.gammaLutR;
+    final int[] lutG = this.global.gammaLutG;
+    final int[] lutB = this.global.gammaLutB;
+    long address = MemoryUtil.memAddress0(colorData);
+    for (int i = 0; i < numPoints; ++i) {
+      final int c = colors[i];
+      final int gammaCorrected =
+        (c & LXColor.ALPHA_MASK) |
+        lutR[(c >>> LXColor.R_SHIFT) & 0xff] |
+        lutG[(c >>> LXColor.G_SHIFT) & 0xff] |
+        lutB[c & 0xff];
+      final long pair = (gammaCorrected & 0xffffffffL) * 0x100000001L;
+      for (int v = 0; v < ModelBuffer.VERTICES_PER_POINT; v += 2) {
+        MemoryUtil.memPutLong(address, pair);
+        address += Long.BYTES;
+      }
+    }
+    colorData.position(0).limit(numBytes);
+    this.colorBuffer.update();
+  }
+
+  private void requestDepthSort() {
+    final Matrix4f viewMatrix = getContext().getViewMatrix();
+    final float dx = viewMatrix.m02();
+    final float dy = viewMatrix.m12();
+    final float dz = viewMatrix.m22();
+    final DepthSortCache cache = this.depthSortCache;
+    final boolean useCache = (cache != null) && cache.isReady();
+    final DepthSortWorker.Request request = new DepthSortWorker.Request(
+      this.depthSortToken,
+      (this.depthSortPoints && !useCache) ? this.model.points : null,
+      dx,
+      dy,
+      dz,
+      this.depthOrderBack,
+      this.indexBufferBack
+    );
+    if (useCache) {
+      // Use the nearest cached order, nothing to do if it's already in use
+      final int index = cache.nearest(dx, dy, dz);
+      if (index == this.depthSortCacheIndex) {
+        return;
+      }
+      this.depthSortCacheIndex = index;
+      request.setSorted(cache.orders[index]);
+    } else {
+      this.depthSortCacheIndex = -1;
+      this.depthSortPoints = false;
+    }
+    this.depthSortWorker.request(request);
+    this.depthSortPending = true;
+  }
+
   private static final long Z_SORT_TIMEOUT_MS = 50;
   private boolean needsZSort = false;
   private long zSortMillis = 0;
@@ -170,6 +170,7 @@ public class VGraphics implements BGFXEngine.Resource {
       noTint();
 
       allocatedImages.add(this);
+      glx.bgfx.resources.register(this, imageData.capacity(), 4L * w * h * (is2x ? 4 : 1));
     }
 
     private static ByteBuffer bufferARGB(ByteBuffer rgbaData, int[] argb) {
@@ -226,6 +227,7 @@ public class VGraphics implements BGFXEngine.Resource {
       nvgDeleteImage(vg, this.id);
       MemoryUtil.memFree(this.imageData);
       allocatedImages.remove(this);
+      glx.bgfx.resources.unregister(this);
     }
   }
 
@@ -334,9 +336,11 @@ public class VGraphics implements BGFXEngine.Resource {
       // we've got enough framebuffer pixels to cover it! Note that this
       // extra sub-pixel is okay, see the nvgBeginFrame() call where
       // the actual frame size is passed as a float.
+      final int framebufferWidth = (int) Math.ceil(this.width * glx.window.getUIContentScaleX());
+      final int framebufferHeight = (int) Math.ceil(this.height * glx.window.getUIContentScaleY());
       this.buffer = nvgluCreateFramebuffer(vg,
-        (int) Math.ceil(this.width * glx.window.getUIContentScaleX()),
-        (int) Math.ceil(this.height * glx.window.getUIContentScaleY()),
+        framebufferWidth,
+        framebufferHeight,
         this.imageFlags
       );
 
@@ -344,6 +348,9 @@ public class VGraphics implements BGFXEngine.Resource {
         throw new RuntimeException("nvgluCreateFramebuffer failed!! Not a good situation.");
       }
 
+      // RGBA8 color texture, owned by the context it renders
+      glx.bgfx.resources.register(this, this.context, 0, 4L * framebufferWidth * framebufferHeight);
+
       // Note what happens here... the framebuffer is in framebuffer-pixel space. But
       // when we're going to paint it into another UI2dContext, those pixels will be in
       // UI-space. So the paint image pattern is in UI-space width/height
@@ -360,6 +367,7 @@ public class VGraphics implements BGFXEngine.Resource {
           nvgluDeleteFramebuffer(buffer);
         }
         this.buffer = null;
+        glx.bgfx.resources.unregister(this);
       }
 
       // We know it *will* be removed, whether now or later
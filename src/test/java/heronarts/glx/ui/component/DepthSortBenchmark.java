@@ -0,0 +1,129 @@
+/**
+ * Copyright 2025- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.glx.ui.component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import heronarts.lx.model.LXPoint;
+
+/**
+ * Manual microbenchmark comparing the radix DepthSorter used by UIPointCloud with
+ * the comparator sort over point objects that it replaced. Run with an optional
+ * number of points as the first argument.
+ */
+public class DepthSortBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 20;
+  private static final int ITERATIONS = 50;
+
+  // Previous implementation, an array of objects sorted by Arrays.sort()
+  private static class Point {
+    private final LXPoint point;
+    private float zDepth;
+
+    private Point(LXPoint point) {
+      this.point = point;
+    }
+  }
+
+  private static final Comparator<Point> Z_COMPARATOR = new Comparator<Point>() {
+    @Override
+    public int compare(Point p1, Point p2) {
+      if (p1.zDepth < p2.zDepth) {
+        return 1;
+      } else if (p1.zDepth > p2.zDepth) {
+        return -1;
+      }
+      return 0;
+    }
+  };
+
+  private static void comparatorSort(Point[] orderedPoints, float m02, float m12, float m22) {
+    for (Point p : orderedPoints) {
+      p.zDepth = m02 * p.point.x + m12 * p.point.y + m22 * p.point.z;
+    }
+    Arrays.sort(orderedPoints, Z_COMPARATOR);
+  }
+
+  public static void main(String[] args) {
+    final int numPoints = (args.length > 0) ? Integer.parseInt(args[0]) : 500000;
+    final Random random = new Random(0);
+
+    final List<LXPoint> points = new ArrayList<>(numPoints);
+    final Point[] orderedPoints = new Point[numPoints];
+    for (int i = 0; i < numPoints; ++i) {
+      final LXPoint p = new LXPoint(random.nextFloat() * 100, random.nextFloat() * 100, random.nextFloat() * 100);
+      points.add(p);
+      orderedPoints[i] = new Point(p);
+    }
+
+    final DepthSorter sorter = new DepthSorter().setPoints(points);
+
+    // Rotate the view direction every iteration so that neither sort benefits
+    // from already-sorted input
+    final float[][] directions = new float[WARMUP_ITERATIONS + ITERATIONS][];
+    for (int i = 0; i < directions.length; ++i) {
+      final double theta = i * 0.1;
+      directions[i] = new float[] { (float) Math.sin(theta), 0.3f, (float) Math.cos(theta) };
+    }
+
+    for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+      final float[] d = directions[i];
+      comparatorSort(orderedPoints, d[0], d[1], d[2]);
+      sorter.sort(d[0], d[1], d[2]);
+    }
+
+    long comparatorNanos = 0;
+    long radixNanos = 0;
+    for (int i = WARMUP_ITERATIONS; i < directions.length; ++i) {
+      final float[] d = directions[i];
+      long start = System.nanoTime();
+      comparatorSort(orderedPoints, d[0], d[1], d[2]);
+      comparatorNanos += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      sorter.sort(d[0], d[1], d[2]);
+      radixNanos += System.nanoTime() - start;
+
+      verify(points, sorter, d);
+    }
+
+    System.out.printf("Points: %d, iterations: %d%n", numPoints, ITERATIONS);
+    System.out.printf("Comparator sort: %.2fms%n", comparatorNanos / 1e6 / ITERATIONS);
+    System.out.printf("Radix sort:      %.2fms%n", radixNanos / 1e6 / ITERATIONS);
+  }
+
+  private static void verify(List<LXPoint> points, DepthSorter sorter, float[] d) {
+    final int[] order = sorter.getOrder();
+    float previous = Float.POSITIVE_INFINITY;
+    for (int i = 0; i < sorter.size(); ++i) {
+      final LXPoint p = points.get(order[i]);
+      final float depth = d[0] * p.x + d[1] * p.y + d[2] * p.z;
+      if (depth > previous) {
+        throw new IllegalStateException("Radix sort out of order at position " + i);
+      }
+      previous = depth;
+    }
+  }
+
+}